@@ -0,0 +1,107 @@
+package com.dwarfspawn.benchmarks;
+
+import com.dwarfspawn.spawn.ArrayBlockAccess;
+import com.dwarfspawn.spawn.CandidateSampler;
+import com.dwarfspawn.spawn.ColumnCache;
+import com.dwarfspawn.spawn.ParallelCandidateEvaluator;
+import com.dwarfspawn.spawn.SearchSettings;
+import com.dwarfspawn.spawn.SearchTrace;
+import com.dwarfspawn.spawn.SpawnPoint;
+import com.dwarfspawn.spawn.SpawnSampling;
+import com.dwarfspawn.spawn.SpawnSearchEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнивает последовательную и параллельную проверку одной порции кандидатов
+ * асинхронного поиска (parallel-search-threads). Самый показательный мир -
+ * MOSTLY_AIR: там большинство кандидатов не подходят и проверяются целиком.
+ * С cache=true потоки работают через общий кэш колонн, как на сервере; кэш
+ * ограничен, поэтому в нем идут и попадания, и промахи с вытеснением.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class ParallelSearchBenchmark {
+    private static final long SEED = 42L;
+    private static final int SPAWN_RADIUS = 200;
+    private static final int MIN_SPAWN_HEIGHT = 50;
+    private static final int MAX_SPAWN_HEIGHT = 64;
+    // Порция кандидатов, как у асинхронного поиска
+    private static final int BATCH_SIZE = 8;
+    // Размер кэша колонн по умолчанию из config.yml
+    private static final int COLUMN_CACHE_SIZE = 512;
+
+    @Param({"CAVES", "MOSTLY_AIR"})
+    public SyntheticWorld.Type worldType;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"false", "true"})
+    public boolean cache;
+
+    private ArrayBlockAccess blocks;
+    private SearchSettings settings;
+    private SpawnSearchEngine engine;
+    private ParallelCandidateEvaluator evaluator;
+    private CandidateSampler sampler;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        blocks = SyntheticWorld.generate(worldType, SPAWN_RADIUS + SpawnSearchEngine.NEARBY_SEARCH_RADIUS + 1, SEED)
+                .getBlocks();
+        settings = new SearchSettings(SPAWN_RADIUS, MIN_SPAWN_HEIGHT, MAX_SPAWN_HEIGHT, true, BATCH_SIZE,
+                SpawnSampling.UNIFORM);
+        if (cache) {
+            blocks.setWorldId(UUID.nameUUIDFromBytes(new byte[0]));
+            engine = new SpawnSearchEngine(new ColumnCache(COLUMN_CACHE_SIZE));
+        } else {
+            engine = new SpawnSearchEngine(null);
+        }
+        evaluator = new ParallelCandidateEvaluator(engine);
+        sampler = settings.newSampler(0, 0, new Random(SEED));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        evaluator.shutdown();
+    }
+
+    /**
+     * Проверка одной порции кандидатов до первого найденного места
+     */
+    @Benchmark
+    public SpawnPoint batch() {
+        List<SpawnPoint> candidates = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            candidates.add(sampler.next());
+        }
+
+        SearchTrace trace = new SearchTrace();
+        if (threads <= 1) {
+            return engine.findFirstValid(candidates, blocks, settings, trace);
+        }
+        return evaluator.findFirstValid(candidates, blocks, settings, threads, trace).join();
+    }
+}
@@ -0,0 +1,130 @@
+package com.dwarfspawn.benchmarks;
+
+import com.dwarfspawn.spawn.ArrayBlockAccess;
+import com.dwarfspawn.spawn.BlockAccess;
+import com.dwarfspawn.spawn.SearchSettings;
+import com.dwarfspawn.spawn.SearchTrace;
+import com.dwarfspawn.spawn.SpawnPoint;
+import com.dwarfspawn.spawn.SpawnSampling;
+import com.dwarfspawn.spawn.SpawnSearchEngine;
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнивает способы выбора кандидатов (spawn-sampling): кроме времени на одно
+ * возрождение показывает, сколько попыток и разных чанков понадобилось
+ * (колонки attempts и chunks в результатах - суммы за итерацию).
+ * Время включает учет чанков, поэтому сравнивать его стоит только между способами.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class SamplingBenchmark {
+    private static final long SEED = 42L;
+    // Большой радиус, чтобы разница в числе затронутых чанков была заметна
+    private static final int SPAWN_RADIUS = 200;
+    private static final int MIN_SPAWN_HEIGHT = 50;
+    private static final int MAX_SPAWN_HEIGHT = 64;
+    private static final int MAX_SPAWN_ATTEMPTS = 100;
+
+    @Param({"CAVES", "MOSTLY_AIR", "FLOODED"})
+    public SyntheticWorld.Type worldType;
+
+    @Param({"RANDOM", "UNIFORM", "CHUNK_STRATIFIED"})
+    public SpawnSampling sampling;
+
+    private ChunkCountingAccess blocks;
+    private SearchSettings settings;
+    private SpawnSearchEngine engine;
+    private Random random;
+
+    /**
+     * Счетчики, которые JMH выводит рядом со временем
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long attempts;
+        public long chunks;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        blocks = new ChunkCountingAccess(SyntheticWorld.generate(worldType,
+                SPAWN_RADIUS + SpawnSearchEngine.NEARBY_SEARCH_RADIUS + 1, SEED).getBlocks());
+        settings = new SearchSettings(SPAWN_RADIUS, MIN_SPAWN_HEIGHT, MAX_SPAWN_HEIGHT, true,
+                MAX_SPAWN_ATTEMPTS, sampling);
+        engine = new SpawnSearchEngine(null);
+        random = new Random(SEED);
+    }
+
+    @Benchmark
+    public SpawnPoint respawnSearch(Counters counters) {
+        blocks.touchedChunks.clear();
+        SearchTrace trace = new SearchTrace();
+        SpawnPoint validPoint = engine.findRandom(blocks, settings.newSampler(0, 0, random), MAX_SPAWN_ATTEMPTS,
+                settings, trace);
+        counters.attempts += trace.getAttempts();
+        counters.chunks += blocks.touchedChunks.size();
+        return validPoint;
+    }
+
+    /**
+     * Пропускает обращения к сетке блоков и запоминает, какие чанки были прочитаны
+     * (на сервере каждый такой чанк нужно загрузить и снять с него снимок)
+     */
+    private static class ChunkCountingAccess implements BlockAccess {
+        private final ArrayBlockAccess blocks;
+        private final Set<Long> touchedChunks = new HashSet<>();
+
+        private ChunkCountingAccess(ArrayBlockAccess blocks) {
+            this.blocks = blocks;
+        }
+
+        @Override
+        public int getMinY() {
+            return blocks.getMinY();
+        }
+
+        @Override
+        public int getMaxY() {
+            return blocks.getMaxY();
+        }
+
+        @Override
+        public boolean hasColumn(int x, int z) {
+            touchedChunks.add(((long) (x >> 4) << 32) | ((z >> 4) & 0xFFFFFFFFL));
+            return blocks.hasColumn(x, z);
+        }
+
+        @Override
+        public Material getType(int x, int y, int z) {
+            return blocks.getType(x, y, z);
+        }
+
+        @Override
+        public int getHighestBlockY(int x, int z) {
+            return blocks.getHighestBlockY(x, z);
+        }
+    }
+}
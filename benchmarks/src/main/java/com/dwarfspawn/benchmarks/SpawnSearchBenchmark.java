@@ -0,0 +1,160 @@
+package com.dwarfspawn.benchmarks;
+
+import com.dwarfspawn.spawn.ArrayBlockAccess;
+import com.dwarfspawn.spawn.ColumnCache;
+import com.dwarfspawn.spawn.ColumnScanner;
+import com.dwarfspawn.spawn.SearchSettings;
+import com.dwarfspawn.spawn.SearchTrace;
+import com.dwarfspawn.spawn.SpawnPoint;
+import com.dwarfspawn.spawn.SpawnSampling;
+import com.dwarfspawn.spawn.SpawnSearchEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Измеряет стоимость поиска места спавна на синтетических мирах.
+ * Время - в ns/op; выделения памяти на одно возрождение показывает профайлер
+ * GC (gc.alloc.rate.norm, байт на операцию):
+ * <pre>java -jar target/benchmarks.jar -prof gc</pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class SpawnSearchBenchmark {
+    private static final long SEED = 42L;
+    // Значения по умолчанию из config.yml
+    private static final int SPAWN_RADIUS = 50;
+    private static final int MIN_SPAWN_HEIGHT = 50;
+    private static final int MAX_SPAWN_HEIGHT = 64;
+    private static final int MAX_SPAWN_ATTEMPTS = 100;
+    // Заранее созданные кандидаты, чтобы scanNeighborhood не измерял их создание
+    private static final int CANDIDATES = 1024;
+    private static final int COLUMN_CACHE_SIZE = 512;
+
+    @Param({"CAVES", "MOSTLY_AIR", "FLOODED"})
+    public SyntheticWorld.Type worldType;
+
+    @Param({"true", "false"})
+    public boolean checkBlockAbove;
+
+    private ArrayBlockAccess blocks;
+    private SearchSettings settings;
+    private SpawnSearchEngine engine;
+    private SpawnSearchEngine cachedEngine;
+    private Random random;
+    private SpawnPoint[] candidates;
+    private int nextCandidate;
+    private SearchTrace scanTrace;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        blocks = SyntheticWorld.generate(worldType, SPAWN_RADIUS + SpawnSearchEngine.NEARBY_SEARCH_RADIUS + 1, SEED)
+                .getBlocks();
+        settings = new SearchSettings(SPAWN_RADIUS, MIN_SPAWN_HEIGHT, MAX_SPAWN_HEIGHT, checkBlockAbove,
+                MAX_SPAWN_ATTEMPTS, SpawnSampling.RANDOM);
+        // Без кэша колонн: измеряем саму проверку блоков
+        engine = new SpawnSearchEngine(null);
+        // С кэшем колонн, как на сервере: весь синтетический мир помещается в кэш,
+        // поэтому после разогрева почти все колонны берутся из него
+        blocks.setWorldId(UUID.nameUUIDFromBytes(new byte[0]));
+        cachedEngine = new SpawnSearchEngine(new ColumnCache(COLUMN_CACHE_SIZE));
+        random = new Random(SEED);
+        candidates = new SpawnPoint[CANDIDATES];
+        for (int i = 0; i < CANDIDATES; i++) {
+            candidates[i] = new SpawnPoint(random.nextInt(-SPAWN_RADIUS, SPAWN_RADIUS) + 0.5, MAX_SPAWN_HEIGHT,
+                    random.nextInt(-SPAWN_RADIUS, SPAWN_RADIUS) + 0.5);
+        }
+        scanTrace = new SearchTrace();
+    }
+
+    /**
+     * Проверка одной случайной колонны до первого подходящего места
+     */
+    @Benchmark
+    public int scanColumn() {
+        int x = random.nextInt(-SPAWN_RADIUS, SPAWN_RADIUS);
+        int z = random.nextInt(-SPAWN_RADIUS, SPAWN_RADIUS);
+        return ColumnScanner.findSpawnY(blocks, x, z, MAX_SPAWN_HEIGHT, MIN_SPAWN_HEIGHT, settings.safetyRules(),
+                checkBlockAbove);
+    }
+
+    /**
+     * Проверка одной случайной колонны во всем диапазоне высот (как при промахе кэша колонн)
+     */
+    @Benchmark
+    public int[] scanColumnAllHeights() {
+        int x = random.nextInt(-SPAWN_RADIUS, SPAWN_RADIUS);
+        int z = random.nextInt(-SPAWN_RADIUS, SPAWN_RADIUS);
+        return ColumnScanner.findSpawnYs(blocks, x, z, MAX_SPAWN_HEIGHT, MIN_SPAWN_HEIGHT, settings.safetyRules(),
+                checkBlockAbove);
+    }
+
+    /**
+     * Проверка одного кандидата: его колонна и круг радиусом 5 вокруг (до 81 колонны).
+     * Проверка блоков не создает объектов, поэтому gc.alloc.rate.norm здесь -
+     * только найденная точка (если она нашлась)
+     */
+    @Benchmark
+    public SpawnPoint scanNeighborhood() {
+        SpawnPoint candidate = candidates[nextCandidate++ & (CANDIDATES - 1)];
+        return engine.findNear(candidate, blocks, settings, scanTrace);
+    }
+
+    /**
+     * То же, что scanNeighborhood, но с кэшем колонн: колонны берутся из кэша и только
+     * перепроверяются по блокам. Чтение кэша не создает объектов
+     */
+    @Benchmark
+    public SpawnPoint scanNeighborhoodCached() {
+        SpawnPoint candidate = candidates[nextCandidate++ & (CANDIDATES - 1)];
+        return cachedEngine.findNear(candidate, blocks, settings, scanTrace);
+    }
+
+    /**
+     * Полный поиск места для одного возрождения без кэша колонн - тот же путь, что у
+     * SpawnLocationFinder#findSpawnLocation: случайные кандидаты в радиусе,
+     * для каждого - сама колонна и круг радиусом 5 вокруг, в конце - центр спавна.
+     * Способы выбора кандидатов сравнивает {@link SamplingBenchmark}.
+     */
+    @Benchmark
+    public SpawnPoint respawnSearch() {
+        SearchTrace trace = new SearchTrace();
+        SpawnPoint validPoint = engine.findRandom(blocks, settings.newSampler(0, 0, random), MAX_SPAWN_ATTEMPTS,
+                settings, trace);
+        if (validPoint == null) {
+            validPoint = engine.findInColumn(new SpawnPoint(0, MIN_SPAWN_HEIGHT, 0), blocks, settings, trace);
+        }
+        return validPoint;
+    }
+
+    /**
+     * То же, что respawnSearch, но с кэшем колонн
+     */
+    @Benchmark
+    public SpawnPoint respawnSearchCached() {
+        SearchTrace trace = new SearchTrace();
+        SpawnPoint validPoint = cachedEngine.findRandom(blocks, settings.newSampler(0, 0, random), MAX_SPAWN_ATTEMPTS,
+                settings, trace);
+        if (validPoint == null) {
+            validPoint = cachedEngine.findInColumn(new SpawnPoint(0, MIN_SPAWN_HEIGHT, 0), blocks, settings, trace);
+        }
+        return validPoint;
+    }
+}
@@ -0,0 +1,161 @@
+package com.dwarfspawn.benchmarks;
+
+import com.dwarfspawn.spawn.ArrayBlockAccess;
+import org.bukkit.Material;
+
+import java.util.SplittableRandom;
+
+/**
+ * Синтетический мир в памяти: квадрат вокруг (0, 0) с высотами как у
+ * обычного мира 1.21 (от -64 до 320). Генерация детерминирована по seed,
+ * поэтому результаты разных запусков можно сравнивать.
+ */
+public class SyntheticWorld {
+    public static final int MIN_Y = -64;
+    public static final int MAX_Y = 320;
+
+    /**
+     * Типичные миры, на которых измеряется поиск
+     */
+    public enum Type {
+        /** Сплошной камень до поверхности на Y=64, прорезанный ходами пещер */
+        CAVES,
+        /** Почти пустой мир: камень только у дна и редкие парящие площадки */
+        MOSTLY_AIR,
+        /** Океан над дном на Y=56, все пещеры ниже Y=48 затоплены */
+        FLOODED
+    }
+
+    private final int radius;
+    private final ArrayBlockAccess blocks;
+
+    private SyntheticWorld(int radius) {
+        this.radius = radius;
+        this.blocks = new ArrayBlockAccess(-radius, -radius, radius * 2, radius * 2, MIN_Y, MAX_Y);
+    }
+
+    /**
+     * Генерирует мир, покрывающий квадрат со стороной 2 * radius вокруг (0, 0)
+     * @param type Тип мира
+     * @param radius Радиус в блоках
+     * @param seed Seed генерации
+     */
+    public static SyntheticWorld generate(Type type, int radius, long seed) {
+        SyntheticWorld world = new SyntheticWorld(radius);
+        SplittableRandom random = new SplittableRandom(seed);
+        switch (type) {
+            case CAVES -> {
+                world.fillTerrain(64, 0);
+                world.carveCaves(random, 20, 60);
+            }
+            case MOSTLY_AIR -> {
+                world.fillTerrain(-48, -48);
+                world.addPlatforms(random, 40, 70);
+            }
+            case FLOODED -> {
+                world.fillTerrain(56, 72);
+                world.carveCaves(random, 20, 54);
+                world.floodCaves(48);
+            }
+        }
+        return world;
+    }
+
+    public ArrayBlockAccess getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Заполняет мир: камень (глубинный сланец ниже 0) до поверхности, сверху
+     * трава, а если поверхность ниже уровня воды - вода до этого уровня
+     */
+    private void fillTerrain(int surfaceY, int waterLevel) {
+        for (int x = -radius; x < radius; x++) {
+            for (int z = -radius; z < radius; z++) {
+                for (int y = MIN_Y; y < surfaceY; y++) {
+                    blocks.setType(x, y, z, y < 0 ? Material.DEEPSLATE : Material.STONE);
+                }
+                blocks.setType(x, surfaceY, z, Material.GRASS_BLOCK);
+                for (int y = surfaceY + 1; y <= waterLevel; y++) {
+                    blocks.setType(x, y, z, Material.WATER);
+                }
+            }
+        }
+    }
+
+    /**
+     * Прорезает извилистые ходы пещер: по два хода на чанк площади, каждый - цепочка шаров
+     * радиусом 2 вдоль случайного блуждания
+     */
+    private void carveCaves(SplittableRandom random, int minY, int maxY) {
+        int tunnels = chunkCount() * 2;
+        for (int i = 0; i < tunnels; i++) {
+            double x = random.nextInt(-radius, radius);
+            double y = random.nextInt(minY, maxY);
+            double z = random.nextInt(-radius, radius);
+            double yaw = random.nextDouble() * 2 * Math.PI;
+            double pitch = 0;
+            for (int step = 0; step < 60; step++) {
+                carveSphere((int) x, (int) y, (int) z, 2);
+                yaw += (random.nextDouble() - 0.5) * 0.8;
+                pitch = Math.max(-0.5, Math.min(0.5, pitch + (random.nextDouble() - 0.5) * 0.3));
+                x += Math.cos(yaw) * Math.cos(pitch);
+                y = Math.max(minY, Math.min(maxY, y + Math.sin(pitch)));
+                z += Math.sin(yaw) * Math.cos(pitch);
+            }
+        }
+    }
+
+    private void carveSphere(int centerX, int centerY, int centerZ, int radius) {
+        for (int x = centerX - radius; x <= centerX + radius; x++) {
+            for (int y = centerY - radius; y <= centerY + radius; y++) {
+                for (int z = centerZ - radius; z <= centerZ + radius; z++) {
+                    int dx = x - centerX;
+                    int dy = y - centerY;
+                    int dz = z - centerZ;
+                    if (dx * dx + dy * dy + dz * dz <= radius * radius) {
+                        blocks.setType(x, y, z, Material.CAVE_AIR);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Заполняет водой весь воздух пещер ниже уровня
+     */
+    private void floodCaves(int waterLevel) {
+        for (int x = -radius; x < radius; x++) {
+            for (int z = -radius; z < radius; z++) {
+                for (int y = MIN_Y; y < waterLevel; y++) {
+                    if (blocks.getType(x, y, z) == Material.CAVE_AIR) {
+                        blocks.setType(x, y, z, Material.WATER);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Добавляет парящие каменные площадки 5x5 - по одной на чанк площади. Иногда площадки
+     * оказываются друг над другом, и под верхней можно заспавниться
+     */
+    private void addPlatforms(SplittableRandom random, int minY, int maxY) {
+        int platforms = chunkCount();
+        for (int i = 0; i < platforms; i++) {
+            int x = random.nextInt(-radius, radius - 5);
+            int y = random.nextInt(minY, maxY);
+            int z = random.nextInt(-radius, radius - 5);
+            for (int dx = 0; dx < 5; dx++) {
+                for (int dz = 0; dz < 5; dz++) {
+                    blocks.setType(x + dx, y, z + dz, Material.STONE);
+                }
+            }
+        }
+    }
+
+    private int chunkCount() {
+        int chunksPerSide = (radius * 2 + 15) >> 4;
+        return chunksPerSide * chunksPerSide;
+    }
+}
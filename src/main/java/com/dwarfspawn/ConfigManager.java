@@ -1,5 +1,7 @@
 package com.dwarfspawn;
 
+import com.dwarfspawn.compat.PaperCompat;
+import com.dwarfspawn.spawn.SpawnSearchMode;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.event.ClickEvent;
 import net.kyori.adventure.text.format.NamedTextColor;
@@ -17,13 +19,20 @@ import org.bukkit.potion.PotionEffectType;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class ConfigManager {
+    // Ссылки в книге в формате [текст](url)
+    private static final Pattern LINK_PATTERN = Pattern.compile("\\[([^\\]]+)\\]\\(([^\\)]+)\\)");
+    private static final LegacyComponentSerializer LEGACY_SERIALIZER = LegacyComponentSerializer.legacySection();
+
     private final JavaPlugin plugin;
-    private FileConfiguration config;
+    // Настройки и стартовый набор публикуются одной записью после того, как собраны
+    // оба, поэтому читатели никогда не видят новые настройки со старым набором
+    private volatile Snapshot snapshot;
 
     public ConfigManager(JavaPlugin plugin) throws org.bukkit.configuration.InvalidConfigurationException {
         this.plugin = plugin;
@@ -33,12 +42,27 @@ public class ConfigManager {
     public void reloadConfig() throws org.bukkit.configuration.InvalidConfigurationException {
         try {
             plugin.reloadConfig();
-            config = plugin.getConfig();
+            FileConfiguration config = plugin.getConfig();
             
             // Проверяем, что конфиг действительно загрузился
             if (config == null) {
                 throw new org.bukkit.configuration.InvalidConfigurationException("Конфигурация не была загружена");
             }
+
+            // Разбираем настройки один раз
+            PluginSettings settings = PluginSettings.load(config);
+            // Собираем предметы, эффекты и книгу один раз, игрокам выдаются их копии
+            StartKitTemplates startKitTemplates = new StartKitTemplates(
+                    Collections.unmodifiableList(parseStartKitItems(config)),
+                    Collections.unmodifiableList(parseStartKitEffects(config)),
+                    buildFirstJoinBook(config, settings.firstJoinBookEnabled()));
+
+            // Все собрано - подменяем снимок одной записью. Если сборка выше упала,
+            // остается прежний снимок
+            snapshot = new Snapshot(settings, startKitTemplates);
+            for (String name : settings.safetyRules().getUnknownMaterials()) {
+                plugin.getLogger().warning("Неизвестный материал в spawn-safety: " + name);
+            }
         } catch (org.bukkit.configuration.InvalidConfigurationException e) {
             // Пробрасываем исключение дальше
             throw e;
@@ -49,15 +73,24 @@ public class ConfigManager {
     }
 
     public boolean isRadiusEnabled() {
-        return config.getBoolean("radius-enabled", true);
+        return snapshot.settings().radiusEnabled();
     }
 
     public int getSpawnRadius() {
-        return config.getInt("spawn-radius", 50);
+        return snapshot.settings().spawnRadius();
+    }
+
+    /**
+     * @return Текущий снимок настроек. Для согласованности его стоит получить один раз
+     *         на всю операцию, а не вызывать геттеры по отдельности
+     */
+    public PluginSettings getSettings() {
+        return snapshot.settings();
     }
 
     public Location getSpawnLocation() {
-        String worldName = config.getString("spawn-location.world", "world");
+        PluginSettings settings = snapshot.settings();
+        String worldName = settings.spawnWorldName();
         World world = Bukkit.getWorld(worldName);
 
         if (world == null) {
@@ -90,27 +123,47 @@ public class ConfigManager {
             }
         }
 
-        double x = config.getDouble("spawn-location.x", 0);
-        double y = config.getDouble("spawn-location.y", 50);
-        double z = config.getDouble("spawn-location.z", 0);
-
-        return new Location(world, x, y, z);
+        return new Location(world, settings.spawnX(), settings.spawnY(), settings.spawnZ());
     }
 
     public int getMinSpawnHeight() {
-        return config.getInt("min-spawn-height", 50);
+        return snapshot.settings().minSpawnHeight();
     }
 
     public int getMaxSpawnHeight() {
-        return config.getInt("max-spawn-height", 64);
+        return snapshot.settings().maxSpawnHeight();
     }
 
     public boolean shouldCheckBlockAbove() {
-        return config.getBoolean("check-block-above", true);
+        return snapshot.settings().checkBlockAbove();
     }
 
     public int getMaxSpawnAttempts() {
-        return config.getInt("max-spawn-attempts", 100);
+        return snapshot.settings().maxSpawnAttempts();
+    }
+
+    public SpawnSearchMode getSpawnSearchMode() {
+        return snapshot.settings().spawnSearchMode();
+    }
+
+    public boolean isSpeculativeSpawnSearch() {
+        return snapshot.settings().speculativeSpawnSearch();
+    }
+
+    public boolean isFirstJoinPreLoginSearch() {
+        return snapshot.settings().firstJoinPreLoginSearch();
+    }
+
+    public int getSpawnPoolSize() {
+        return snapshot.settings().spawnPoolSize();
+    }
+
+    public int getColumnCacheSize() {
+        return snapshot.settings().columnCacheSize();
+    }
+
+    public int getStatsLogInterval() {
+        return snapshot.settings().statsLogInterval();
     }
 
     // ============================================
@@ -118,18 +171,37 @@ public class ConfigManager {
     // ============================================
 
     public boolean isStartKitEnabled() {
-        return config.getBoolean("start-kit-enabled", true);
+        return snapshot.settings().startKitEnabled();
     }
 
     public int getStartKitCooldown() {
-        return config.getInt("start-kit-cooldown", 300);
+        return snapshot.settings().startKitCooldown();
     }
 
     public boolean isStartKitEffectsEnabled() {
-        return config.getBoolean("start-kit-effects-enabled", true);
+        return snapshot.settings().startKitEffectsEnabled();
     }
 
+    /**
+     * @return Копии предметов стартового набора (их можно свободно изменять)
+     */
     public List<ItemStack> getStartKitItems() {
+        List<ItemStack> templates = snapshot.startKitTemplates().items();
+        List<ItemStack> items = new ArrayList<>(templates.size());
+        for (ItemStack template : templates) {
+            items.add(template.clone());
+        }
+        return items;
+    }
+
+    /**
+     * @return Эффекты стартового набора (PotionEffect неизменяемый, список только для чтения)
+     */
+    public List<PotionEffect> getStartKitEffects() {
+        return snapshot.startKitTemplates().effects();
+    }
+
+    private List<ItemStack> parseStartKitItems(FileConfiguration config) {
         List<ItemStack> items = new ArrayList<>();
         List<String> itemStrings = config.getStringList("start-kit-items");
 
@@ -156,7 +228,7 @@ public class ConfigManager {
         return items;
     }
 
-    public List<PotionEffect> getStartKitEffects() {
+    private List<PotionEffect> parseStartKitEffects(FileConfiguration config) {
         List<PotionEffect> effects = new ArrayList<>();
         List<String> effectStrings = config.getStringList("start-kit-effects");
 
@@ -216,11 +288,19 @@ public class ConfigManager {
     // ============================================
 
     public boolean isFirstJoinBookEnabled() {
-        return config.getBoolean("first-join-book-enabled", true);
+        return snapshot.settings().firstJoinBookEnabled();
     }
 
+    /**
+     * @return Копия книги для первого входа или null, если книга отключена
+     */
     public ItemStack getFirstJoinBook() {
-        if (!isFirstJoinBookEnabled()) {
+        ItemStack template = snapshot.startKitTemplates().firstJoinBook();
+        return template == null ? null : template.clone();
+    }
+
+    private ItemStack buildFirstJoinBook(FileConfiguration config, boolean enabled) {
+        if (!enabled) {
             return null;
         }
 
@@ -255,46 +335,16 @@ public class ConfigManager {
             pages.add(Component.text("Добро пожаловать на сервер!"));
         }
 
-        // Используем Adventure API для установки страниц с поддержкой ссылок
-        // В Paper API используется метод pages() который возвращает BookMeta.Builder
-        try {
-            // Проверяем, есть ли метод pages() в BookMeta (Paper API)
-            java.lang.reflect.Method pagesMethod = bookMeta.getClass().getMethod("pages", List.class);
-            pagesMethod.invoke(bookMeta, pages);
-        } catch (NoSuchMethodException e) {
-            // Если метод не найден, пробуем использовать setPages с Component через рефлексию
-            try {
-                // Ищем метод setPages, который принимает List<? extends Component>
-                for (java.lang.reflect.Method method : bookMeta.getClass().getMethods()) {
-                    if (method.getName().equals("setPages") && method.getParameterCount() == 1) {
-                        Class<?> paramType = method.getParameterTypes()[0];
-                        if (List.class.isAssignableFrom(paramType)) {
-                            method.invoke(bookMeta, pages);
-                            break;
-                        }
-                    }
-                }
-            } catch (Exception ex) {
-                // Если не поддерживается Component API, используем старый способ
-                List<String> legacyPages = new ArrayList<>();
-                for (String pageString : pageStrings) {
-                    String formattedPage = pageString.replace('&', '§');
-                    // Убираем формат ссылок [текст](url) для старого способа
-                    formattedPage = formattedPage.replaceAll("\\[([^\\]]+)\\]\\([^\\)]+\\)", "$1");
-                    legacyPages.add(formattedPage);
-                }
-                if (legacyPages.isEmpty()) {
-                    legacyPages.add("Добро пожаловать на сервер!");
-                }
-                bookMeta.setPages(legacyPages);
-            }
-        } catch (Exception e) {
-            // Если что-то пошло не так, используем старый способ
+        if (PaperCompat.hasAdventureBookPages()) {
+            // Paper: задаем страницы компонентами Adventure с поддержкой ссылок
+            bookMeta.addPages(pages.toArray(new Component[0]));
+        } else {
+            // Если не поддерживается Component API, используем старый способ
             List<String> legacyPages = new ArrayList<>();
             for (String pageString : pageStrings) {
                 String formattedPage = pageString.replace('&', '§');
                 // Убираем формат ссылок [текст](url) для старого способа
-                formattedPage = formattedPage.replaceAll("\\[([^\\]]+)\\]\\([^\\)]+\\)", "$1");
+                formattedPage = LINK_PATTERN.matcher(formattedPage).replaceAll("$1");
                 legacyPages.add(formattedPage);
             }
             if (legacyPages.isEmpty()) {
@@ -302,7 +352,7 @@ public class ConfigManager {
             }
             bookMeta.setPages(legacyPages);
         }
-        
+
         book.setItemMeta(bookMeta);
 
         return book;
@@ -315,12 +365,11 @@ public class ConfigManager {
      */
     private Component parsePageWithLinks(String pageString) {
         // Конвертируем цветовые коды & в формат Adventure
-        LegacyComponentSerializer serializer = LegacyComponentSerializer.legacySection();
+        LegacyComponentSerializer serializer = LEGACY_SERIALIZER;
         Component baseComponent = serializer.deserialize(pageString.replace('&', '§'));
 
-        // Паттерн для поиска ссылок в формате [текст](url)
-        Pattern linkPattern = Pattern.compile("\\[([^\\]]+)\\]\\(([^\\)]+)\\)");
-        Matcher matcher = linkPattern.matcher(pageString);
+        // Ищем ссылки в формате [текст](url)
+        Matcher matcher = LINK_PATTERN.matcher(pageString);
 
         // Если нет ссылок, просто возвращаем компонент с цветовыми кодами
         if (!matcher.find()) {
@@ -363,4 +412,16 @@ public class ConfigManager {
 
         return result;
     }
+
+    /**
+     * Стартовый набор и книга, собранные из конфигурации
+     */
+    private record StartKitTemplates(List<ItemStack> items, List<PotionEffect> effects, ItemStack firstJoinBook) {
+    }
+
+    /**
+     * Все, что собирается при одной загрузке конфигурации
+     */
+    private record Snapshot(PluginSettings settings, StartKitTemplates startKitTemplates) {
+    }
 }
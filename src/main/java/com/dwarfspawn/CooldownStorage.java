@@ -0,0 +1,155 @@
+package com.dwarfspawn;
+
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Хранение кулдаунов стартового набора на диске, чтобы их нельзя было сбросить
+ * перезапуском сервера. Для каждого игрока - отдельный маленький файл в папке
+ * cooldowns. Записи копятся в памяти и пачкой сбрасываются на диск асинхронной
+ * задачей, поэтому главный поток никогда не работает с файлами.
+ */
+public class CooldownStorage {
+    // Как часто изменения сбрасываются на диск (в тиках)
+    private static final long FLUSH_INTERVAL_TICKS = 100L;
+    // Отметка в очереди записи: файл игрока нужно удалить
+    private static final long REMOVED = Long.MIN_VALUE;
+
+    private final JavaPlugin plugin;
+    private final File directory;
+    private final Map<UUID, Long> pendingWrites = new ConcurrentHashMap<>();
+    private final Object ioLock = new Object();
+    private BukkitTask flushTask;
+
+    public CooldownStorage(JavaPlugin plugin) {
+        this.plugin = plugin;
+        this.directory = new File(plugin.getDataFolder(), "cooldowns");
+    }
+
+    /**
+     * Запускает периодический асинхронный сброс изменений на диск
+     */
+    public void start() {
+        if (flushTask != null) {
+            return;
+        }
+        flushTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::flush,
+                FLUSH_INTERVAL_TICKS, FLUSH_INTERVAL_TICKS);
+    }
+
+    /**
+     * Останавливает задачу и сохраняет все, что еще не записано (при выключении плагина)
+     */
+    public void stop() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        flush();
+    }
+
+    /**
+     * Запоминает время выдачи набора. Файл будет записан при следующем сбросе.
+     * @param playerId UUID игрока
+     * @param lastGiven Время выдачи (мс)
+     */
+    public void save(UUID playerId, long lastGiven) {
+        pendingWrites.put(playerId, lastGiven);
+    }
+
+    /**
+     * Помечает файл игрока на удаление (например, кулдаун уже истек)
+     */
+    public void remove(UUID playerId) {
+        pendingWrites.put(playerId, REMOVED);
+    }
+
+    /**
+     * Читает время последней выдачи набора. Работает с диском, поэтому вызывается
+     * только из асинхронного потока (например, в AsyncPlayerPreLoginEvent).
+     * @param playerId UUID игрока
+     * @return Время выдачи (мс) или null, если записи нет
+     */
+    public Long load(UUID playerId) {
+        // Еще не записанное значение новее, чем то, что на диске
+        Long pending = pendingWrites.get(playerId);
+        if (pending != null) {
+            return pending == REMOVED ? null : pending;
+        }
+
+        File file = getFile(playerId);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        synchronized (ioLock) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(file.toPath()))) {
+                return in.readLong();
+            } catch (IOException e) {
+                plugin.getLogger().warning("Не удалось прочитать кулдаун игрока " + playerId + ": " + e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Записывает на диск все накопленные изменения одной пачкой
+     */
+    public void flush() {
+        if (pendingWrites.isEmpty()) {
+            return;
+        }
+
+        synchronized (ioLock) {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                plugin.getLogger().warning("Не удалось создать папку " + directory.getPath());
+                return;
+            }
+
+            Iterator<Map.Entry<UUID, Long>> iterator = pendingWrites.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<UUID, Long> entry = iterator.next();
+                UUID playerId = entry.getKey();
+                long value = entry.getValue();
+                // Удаляем из очереди, только если значение не успело смениться
+                pendingWrites.remove(playerId, value);
+
+                try {
+                    if (value == REMOVED) {
+                        Files.deleteIfExists(getFile(playerId).toPath());
+                    } else {
+                        write(playerId, value);
+                    }
+                } catch (IOException e) {
+                    plugin.getLogger().warning("Не удалось сохранить кулдаун игрока " + playerId + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void write(UUID playerId, long lastGiven) throws IOException {
+        // Пишем во временный файл и заменяем им старый, чтобы не оставить поврежденный файл
+        Path target = getFile(playerId).toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+            out.writeLong(lastGiven);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private File getFile(UUID playerId) {
+        return new File(directory, playerId + ".dat");
+    }
+}
@@ -0,0 +1,79 @@
+package com.dwarfspawn;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Потокобезопасное хранилище кулдаунов: UUID игрока -> время последней выдачи.
+ * Записи с истекшим кулдауном удаляются сами, поэтому размер хранилища зависит
+ * от числа недавних выдач, а не от числа всех игроков сервера.
+ */
+public class CooldownStore {
+    // Как часто удаляем истекшие записи (в миллисекундах)
+    private static final long PURGE_INTERVAL_MILLIS = 60_000L;
+
+    private final Map<UUID, Long> lastGiven = new ConcurrentHashMap<>();
+    private final AtomicLong lastPurge = new AtomicLong();
+
+    /**
+     * Проверяет кулдаун и, если он прошел, сразу отмечает новую выдачу.
+     * Проверка и отметка атомарны, поэтому набор не выдается дважды.
+     * @param playerId UUID игрока
+     * @param now Текущее время (мс)
+     * @param cooldownMillis Длительность кулдауна (мс)
+     * @return true, если кулдаун прошел и выдача отмечена
+     */
+    public boolean tryAcquire(UUID playerId, long now, long cooldownMillis) {
+        purgeExpired(now, cooldownMillis);
+
+        boolean[] acquired = new boolean[1];
+        lastGiven.compute(playerId, (id, last) -> {
+            if (last != null && now - last < cooldownMillis) {
+                return last; // Кулдаун еще не прошел
+            }
+            acquired[0] = true;
+            return now;
+        });
+        return acquired[0];
+    }
+
+    /**
+     * @return true, если кулдаун игрока еще не прошел
+     */
+    public boolean isOnCooldown(UUID playerId, long now, long cooldownMillis) {
+        Long last = lastGiven.get(playerId);
+        return last != null && now - last < cooldownMillis;
+    }
+
+    /**
+     * Восстанавливает время выдачи (например, загруженное с диска).
+     * Более новая запись в памяти не перезаписывается.
+     */
+    public void restore(UUID playerId, long lastGivenAt) {
+        lastGiven.merge(playerId, lastGivenAt, Math::max);
+    }
+
+    /**
+     * @return Время последней выдачи (мс) или null, если записи нет
+     */
+    public Long getLastGiven(UUID playerId) {
+        return lastGiven.get(playerId);
+    }
+
+    /**
+     * Удаляет записи, кулдаун которых уже прошел (не чаще раза в минуту)
+     */
+    public void purgeExpired(long now, long cooldownMillis) {
+        long previous = lastPurge.get();
+        if (now - previous < PURGE_INTERVAL_MILLIS || !lastPurge.compareAndSet(previous, now)) {
+            return;
+        }
+        lastGiven.values().removeIf(last -> now - last >= cooldownMillis);
+    }
+
+    public int size() {
+        return lastGiven.size();
+    }
+}
@@ -1,14 +1,44 @@
 package com.dwarfspawn;
 
 import com.dwarfspawn.commands.DwarfSpawnCommand;
+import com.dwarfspawn.compat.PaperCompat;
 import com.dwarfspawn.listeners.PlayerDeathListener;
+import com.dwarfspawn.listeners.SpawnCacheListener;
+import com.dwarfspawn.spawn.BudgetedSpawnSearch;
+import com.dwarfspawn.spawn.ChunkTickets;
+import com.dwarfspawn.spawn.ColumnCache;
+import com.dwarfspawn.spawn.SpawnLocationFinder;
+import com.dwarfspawn.spawn.SpawnIndex;
+import com.dwarfspawn.spawn.SpawnIndexStorage;
+import com.dwarfspawn.spawn.SpawnPointPool;
+import com.dwarfspawn.spawn.SpawnSearchEngine;
+import com.dwarfspawn.spawn.SpawnStats;
+import com.dwarfspawn.spawn.SpawnWarmup;
+import com.dwarfspawn.spawn.SpeculativeSpawns;
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.UUID;
 
 public class DwarfSpawn extends JavaPlugin {
 
     private static DwarfSpawn instance;
     private ConfigManager configManager;
     private StartKitManager startKitManager;
+    private KitDelivery kitDelivery;
+    private CooldownStorage cooldownStorage;
+    private ColumnCache columnCache;
+    private SpawnIndex spawnIndex;
+    private SpawnIndexStorage spawnIndexStorage;
+    private SpawnWarmup spawnWarmup;
+    private SpawnLocationFinder spawnLocationFinder;
+    private SpawnPointPool spawnPointPool;
+    private BudgetedSpawnSearch budgetedSpawnSearch;
+    private SpeculativeSpawns speculativeSpawns;
+    private ChunkTickets chunkTickets;
+    private SpawnStats spawnStats;
+    private BukkitTask statsLogTask;
 
     @Override
     public void onEnable() {
@@ -17,6 +47,9 @@ public class DwarfSpawn extends JavaPlugin {
         // Сохраняем конфиг по умолчанию
         saveDefaultConfig();
 
+        // Определяем возможности сервера один раз (до сборки книги и поиска спавна)
+        PaperCompat.init(getLogger());
+
         // Инициализируем менеджер конфигурации
         try {
             configManager = new ConfigManager(this);
@@ -40,11 +73,50 @@ public class DwarfSpawn extends JavaPlugin {
             return;
         }
 
-        // Инициализируем менеджер стартового набора
-        startKitManager = new StartKitManager(configManager);
+        // Инициализируем менеджер стартового набора и хранилище кулдаунов
+        cooldownStorage = new CooldownStorage(this);
+        cooldownStorage.start();
+        startKitManager = new StartKitManager(configManager, cooldownStorage);
+        kitDelivery = new KitDelivery(this, configManager, startKitManager);
+        kitDelivery.start();
+
+        // Игроки, которые уже на сервере (например, после перезагрузки плагина)
+        for (Player player : getServer().getOnlinePlayers()) {
+            UUID playerId = player.getUniqueId();
+            getServer().getScheduler().runTaskAsynchronously(this, () -> startKitManager.loadPlayerData(playerId));
+        }
+
+        // Инициализируем поиск места спавна
+        spawnStats = new SpawnStats();
+        columnCache = new ColumnCache(configManager.getColumnCacheSize());
+        spawnIndex = new SpawnIndex();
+        SpawnSearchEngine spawnSearchEngine = new SpawnSearchEngine(columnCache);
+        spawnLocationFinder = new SpawnLocationFinder(this, configManager, spawnSearchEngine, columnCache,
+                spawnIndex, spawnStats);
+        budgetedSpawnSearch = new BudgetedSpawnSearch(this, configManager, spawnSearchEngine, columnCache,
+                spawnIndex, spawnStats);
+        budgetedSpawnSearch.start();
+
+        // Сначала читаем сохраненный индекс мест спавна, затем прогреваем только то,
+        // чего в нем нет (если прогрев включен в конфиге)
+        spawnIndexStorage = new SpawnIndexStorage(this, configManager, spawnIndex);
+        spawnWarmup = new SpawnWarmup(this, configManager, columnCache, spawnIndex);
+        spawnIndexStorage.start().thenRun(spawnWarmup::start);
+
+        // Тикеты чанков общие для пула и мест, найденных заранее
+        chunkTickets = new ChunkTickets(this);
+
+        // Инициализируем пул заранее найденных точек спавна
+        spawnPointPool = new SpawnPointPool(this, configManager, spawnLocationFinder, spawnStats, chunkTickets);
+        spawnPointPool.start();
+        speculativeSpawns = new SpeculativeSpawns(chunkTickets);
+        scheduleStatsLog();
 
         // Регистрируем слушателей
-        getServer().getPluginManager().registerEvents(new PlayerDeathListener(configManager, startKitManager), this);
+        getServer().getPluginManager().registerEvents(
+                new PlayerDeathListener(configManager, startKitManager, kitDelivery, spawnLocationFinder,
+                        spawnPointPool, budgetedSpawnSearch, speculativeSpawns), this);
+        getServer().getPluginManager().registerEvents(new SpawnCacheListener(spawnPointPool, columnCache, spawnIndex), this);
 
         // Регистрируем команды
         DwarfSpawnCommand command = new DwarfSpawnCommand(this, configManager);
@@ -56,9 +128,63 @@ public class DwarfSpawn extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        if (spawnWarmup != null) {
+            spawnWarmup.stop();
+        }
+        if (spawnIndexStorage != null) {
+            // Сохраняем индекс мест спавна для следующего запуска
+            spawnIndexStorage.stop();
+        }
+        if (spawnPointPool != null) {
+            spawnPointPool.stop();
+        }
+        if (speculativeSpawns != null) {
+            speculativeSpawns.clear();
+        }
+        if (kitDelivery != null) {
+            kitDelivery.stop();
+        }
+        if (budgetedSpawnSearch != null) {
+            budgetedSpawnSearch.stop();
+        }
+        if (spawnLocationFinder != null) {
+            spawnLocationFinder.shutdown();
+        }
+        if (cooldownStorage != null) {
+            // Сохраняем все, что еще не записано
+            cooldownStorage.stop();
+        }
         getLogger().info("DwarfSpawn плагин выгружен!");
     }
 
+    /**
+     * Сбрасывает все результаты поиска мест спавна, найденные по старым настройкам,
+     * и перезапускает прогрев. Вызывается после перезагрузки конфигурации.
+     */
+    public void resetSpawnCaches() {
+        spawnPointPool.clear();
+        columnCache.reset(configManager.getColumnCacheSize());
+        // Индекс сбрасывается, только если изменились радиус, центр или высоты спавна
+        spawnIndexStorage.resetIfSettingsChanged().thenRun(spawnWarmup::start);
+    }
+
+    /**
+     * (Пере)запускает периодический вывод статистики спавна в лог по настройке
+     * stats-log-interval. Вызывается при включении и после перезагрузки конфигурации.
+     */
+    public void scheduleStatsLog() {
+        if (statsLogTask != null) {
+            statsLogTask.cancel();
+            statsLogTask = null;
+        }
+
+        long intervalTicks = configManager.getStatsLogInterval() * 60L * 20L;
+        if (intervalTicks > 0) {
+            statsLogTask = getServer().getScheduler().runTaskTimerAsynchronously(this,
+                    () -> getLogger().info(spawnStats.formatLogLine()), intervalTicks, intervalTicks);
+        }
+    }
+
     public static DwarfSpawn getInstance() {
         return instance;
     }
@@ -70,4 +196,24 @@ public class DwarfSpawn extends JavaPlugin {
     public StartKitManager getStartKitManager() {
         return startKitManager;
     }
+
+    public SpawnLocationFinder getSpawnLocationFinder() {
+        return spawnLocationFinder;
+    }
+
+    public SpawnPointPool getSpawnPointPool() {
+        return spawnPointPool;
+    }
+
+    public ColumnCache getColumnCache() {
+        return columnCache;
+    }
+
+    public SpawnIndex getSpawnIndex() {
+        return spawnIndex;
+    }
+
+    public SpawnStats getSpawnStats() {
+        return spawnStats;
+    }
 }
@@ -0,0 +1,134 @@
+package com.dwarfspawn;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Отложенная выдача стартового набора, эффектов и книги первого входа.
+ * Вместо отдельной задачи планировщика на каждого игрока выдачи лежат в очереди,
+ * разбитой по тику выдачи, и одна повторяющаяся задача раз в тик выдает все, что
+ * пора выдать. Выдачи одного игрока в одном тике объединяются, а предметы кладутся
+ * в инвентарь одним вызовом addItem.
+ * Все методы вызываются только из главного потока.
+ */
+public class KitDelivery {
+    // Что выдать игроку (флаги складываются)
+    public static final int KIT = 1;
+    public static final int EFFECTS = 1 << 1;
+    public static final int BOOK = 1 << 2;
+
+    private final JavaPlugin plugin;
+    private final ConfigManager configManager;
+    private final StartKitManager startKitManager;
+    // Тик выдачи -> игроки и что им выдать (в порядке постановки в очередь)
+    private final NavigableMap<Long, Map<UUID, Integer>> buckets = new TreeMap<>();
+    private long currentTick;
+    private BukkitTask task;
+
+    public KitDelivery(JavaPlugin plugin, ConfigManager configManager, StartKitManager startKitManager) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+        this.startKitManager = startKitManager;
+    }
+
+    /**
+     * Запускает задачу выдачи (раз в тик)
+     */
+    public void start() {
+        if (task != null) {
+            return;
+        }
+        task = new BukkitRunnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }.runTaskTimer(plugin, 1L, 1L);
+    }
+
+    /**
+     * Останавливает задачу выдачи, невыданное отбрасывается
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        buckets.clear();
+    }
+
+    /**
+     * Ставит выдачу в очередь
+     * @param player Игрок
+     * @param delayTicks Через сколько тиков выдать
+     * @param parts Что выдать: KIT, EFFECTS, BOOK (можно несколько через |)
+     */
+    public void schedule(Player player, long delayTicks, int parts) {
+        buckets.computeIfAbsent(currentTick + Math.max(1L, delayTicks), tick -> new LinkedHashMap<>())
+                .merge(player.getUniqueId(), parts, (a, b) -> a | b);
+    }
+
+    private void tick() {
+        currentTick++;
+        if (buckets.isEmpty() || buckets.firstKey() > currentTick) {
+            return;
+        }
+
+        // Забираем все наступившие тики разом: выдачи одного игрока из разных тиков
+        // (если задача пропустила тик) тоже объединяются
+        Map<UUID, Integer> due = new LinkedHashMap<>();
+        Map.Entry<Long, Map<UUID, Integer>> bucket;
+        while ((bucket = buckets.firstEntry()) != null && bucket.getKey() <= currentTick) {
+            buckets.pollFirstEntry();
+            for (Map.Entry<UUID, Integer> entry : bucket.getValue().entrySet()) {
+                due.merge(entry.getKey(), entry.getValue(), (a, b) -> a | b);
+            }
+        }
+
+        for (Map.Entry<UUID, Integer> entry : due.entrySet()) {
+            Player player = Bukkit.getPlayer(entry.getKey());
+            if (player != null && player.isOnline()) {
+                deliver(player, entry.getValue());
+            }
+        }
+    }
+
+    private void deliver(Player player, int parts) {
+        if ((parts & EFFECTS) != 0) {
+            startKitManager.giveEffects(player); // Эффекты всегда
+        }
+
+        List<ItemStack> items = new ArrayList<>();
+        if ((parts & KIT) != 0) {
+            items.addAll(startKitManager.takeStartKit(player)); // Предметы с кулдауном
+        }
+        if ((parts & BOOK) != 0 && configManager.isFirstJoinBookEnabled()) {
+            ItemStack book = configManager.getFirstJoinBook();
+            if (book != null) {
+                items.add(book);
+            }
+        }
+        if (items.isEmpty()) {
+            return;
+        }
+
+        // Все предметы одним вызовом, а то, что не поместилось, выкидываем на землю
+        HashMap<Integer, ItemStack> leftover = player.getInventory().addItem(items.toArray(new ItemStack[0]));
+        for (ItemStack left : leftover.values()) {
+            player.getWorld().dropItemNaturally(player.getLocation(), left);
+        }
+    }
+}
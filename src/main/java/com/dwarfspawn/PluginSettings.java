@@ -0,0 +1,126 @@
+package com.dwarfspawn;
+
+import com.dwarfspawn.spawn.ChunkPolicy;
+import com.dwarfspawn.spawn.SafetyRules;
+import com.dwarfspawn.spawn.SpawnSampling;
+import com.dwarfspawn.spawn.SpawnSearchMode;
+import org.bukkit.configuration.file.FileConfiguration;
+
+/**
+ * Неизменяемый снимок настроек из config.yml.
+ * Создается один раз при каждой загрузке конфигурации, поэтому в горячем пути
+ * настройки читаются из обычных полей, а не поиском по YAML.
+ */
+public record PluginSettings(
+        boolean radiusEnabled,
+        int spawnRadius,
+        String spawnWorldName,
+        double spawnX,
+        double spawnY,
+        double spawnZ,
+        int minSpawnHeight,
+        int maxSpawnHeight,
+        boolean checkBlockAbove,
+        SafetyRules safetyRules,
+        int maxSpawnAttempts,
+        SpawnSampling spawnSampling,
+        ChunkPolicy chunkPolicy,
+        SpawnSearchMode spawnSearchMode,
+        boolean speculativeSpawnSearch,
+        boolean firstJoinPreLoginSearch,
+        double searchTickBudgetMs,
+        int searchThreads,
+        int spawnPoolSize,
+        int columnCacheSize,
+        boolean warmupEnabled,
+        double warmupChunksPerSecond,
+        int statsLogInterval,
+        boolean startKitEnabled,
+        int startKitCooldown,
+        boolean startKitEffectsEnabled,
+        boolean firstJoinBookEnabled) {
+
+    /**
+     * Читает настройки из конфигурации (значения по умолчанию - для отсутствующих ключей)
+     * @param config Загруженная конфигурация
+     * @return Снимок настроек
+     */
+    public static PluginSettings load(FileConfiguration config) {
+        return new PluginSettings(
+                config.getBoolean("radius-enabled", true),
+                config.getInt("spawn-radius", 50),
+                config.getString("spawn-location.world", "world"),
+                config.getDouble("spawn-location.x", 0),
+                config.getDouble("spawn-location.y", 50),
+                config.getDouble("spawn-location.z", 0),
+                config.getInt("min-spawn-height", 50),
+                config.getInt("max-spawn-height", 64),
+                config.getBoolean("check-block-above", true),
+                loadSafetyRules(config),
+                config.getInt("max-spawn-attempts", 100),
+                loadSpawnSampling(config),
+                loadChunkPolicy(config),
+                loadSpawnSearchMode(config),
+                config.getBoolean("speculative-spawn-search", true),
+                config.getBoolean("first-join-pre-login-search", true),
+                config.getDouble("search-tick-budget-ms", 2.0),
+                // Потоков больше, чем ядер, смысла нет
+                Math.max(0, Math.min(config.getInt("parallel-search-threads", 0),
+                        Runtime.getRuntime().availableProcessors())),
+                config.getInt("spawn-pool-size", 0),
+                config.getInt("column-cache-size", 512),
+                config.getBoolean("spawn-warmup-enabled", false),
+                config.getDouble("spawn-warmup-chunks-per-second", 20.0),
+                config.getInt("stats-log-interval", 0),
+                config.getBoolean("start-kit-enabled", true),
+                config.getInt("start-kit-cooldown", 300),
+                config.getBoolean("start-kit-effects-enabled", true),
+                config.getBoolean("first-join-book-enabled", true));
+    }
+
+    /**
+     * Читает spawn-safety и собирает таблицы правил блоков. Отсутствующие списки
+     * означают стандартные правила (как раньше).
+     */
+    private static SafetyRules loadSafetyRules(FileConfiguration config) {
+        return SafetyRules.compile(
+                loadSafetyRule(config, "floor"),
+                loadSafetyRule(config, "body"),
+                loadSafetyRule(config, "head"),
+                loadSafetyRule(config, "roof"));
+    }
+
+    private static SafetyRules.Rule loadSafetyRule(FileConfiguration config, String group) {
+        return new SafetyRules.Rule(
+                config.getStringList("spawn-safety." + group + ".allow"),
+                config.getStringList("spawn-safety." + group + ".deny"));
+    }
+
+    /**
+     * Читает spawn-search-mode. Для старых конфигов без этого ключа режим берется
+     * из async-spawn-search, неизвестное значение означает SYNC.
+     */
+    private static SpawnSearchMode loadSpawnSearchMode(FileConfiguration config) {
+        if (!config.isSet("spawn-search-mode")) {
+            return config.getBoolean("async-spawn-search", false) ? SpawnSearchMode.ASYNC : SpawnSearchMode.SYNC;
+        }
+        SpawnSearchMode mode = SpawnSearchMode.parse(config.getString("spawn-search-mode"));
+        return mode != null ? mode : SpawnSearchMode.SYNC;
+    }
+
+    /**
+     * Читает spawn-sampling. Если ключа нет или значение неизвестно - RANDOM (как раньше).
+     */
+    private static SpawnSampling loadSpawnSampling(FileConfiguration config) {
+        SpawnSampling sampling = SpawnSampling.parse(config.getString("spawn-sampling", "RANDOM"));
+        return sampling != null ? sampling : SpawnSampling.RANDOM;
+    }
+
+    /**
+     * Читает spawn-chunk-policy. Если ключа нет или значение неизвестно - ANY (как раньше).
+     */
+    private static ChunkPolicy loadChunkPolicy(FileConfiguration config) {
+        ChunkPolicy policy = ChunkPolicy.parse(config.getString("spawn-chunk-policy", "ANY"));
+        return policy != null ? policy : ChunkPolicy.ANY;
+    }
+}
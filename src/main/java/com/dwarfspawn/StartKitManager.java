@@ -9,10 +9,31 @@ import java.util.*;
 
 public class StartKitManager {
     private final ConfigManager configManager;
-    private final Map<UUID, Long> lastKitGiven = new HashMap<>(); // UUID игрока -> время последней выдачи
+    private final CooldownStore kitCooldowns = new CooldownStore(); // UUID игрока -> время последней выдачи
+    private final CooldownStorage cooldownStorage;
 
-    public StartKitManager(ConfigManager configManager) {
+    public StartKitManager(ConfigManager configManager, CooldownStorage cooldownStorage) {
         this.configManager = configManager;
+        this.cooldownStorage = cooldownStorage;
+    }
+
+    /**
+     * Загружает сохраненный кулдаун игрока с диска. Вызывается из асинхронного потока
+     * при входе игрока, поэтому данные читаются только для тех, кто заходит на сервер.
+     * @param playerId UUID игрока
+     */
+    public void loadPlayerData(UUID playerId) {
+        Long lastGiven = cooldownStorage.load(playerId);
+        if (lastGiven == null) {
+            return;
+        }
+
+        if (System.currentTimeMillis() - lastGiven < getCooldownMillis()) {
+            kitCooldowns.restore(playerId, lastGiven);
+        } else {
+            // Кулдаун уже истек, запись на диске больше не нужна
+            cooldownStorage.remove(playerId);
+        }
     }
 
     /**
@@ -25,48 +46,32 @@ public class StartKitManager {
             return false;
         }
 
-        UUID playerId = player.getUniqueId();
-        long currentTime = System.currentTimeMillis();
-        long cooldown = configManager.getStartKitCooldown() * 1000L; // Конвертируем секунды в миллисекунды
-
-        // Проверяем, есть ли запись о последней выдаче
-        if (lastKitGiven.containsKey(playerId)) {
-            long lastGiven = lastKitGiven.get(playerId);
-            long timeSinceLastGiven = currentTime - lastGiven;
-
-            // Если прошло меньше времени, чем cooldown, не выдаем
-            if (timeSinceLastGiven < cooldown) {
-                return false;
-            }
-        }
-
-        return true;
+        // Если прошло меньше времени, чем cooldown, не выдаем
+        return !kitCooldowns.isOnCooldown(player.getUniqueId(), System.currentTimeMillis(), getCooldownMillis());
     }
 
     /**
-     * Выдает стартовый набор игроку (предметы с учетом кулдауна)
+     * Забирает стартовый набор для игрока (предметы с учетом кулдауна). Время выдачи
+     * сохраняется сразу, сами предметы кладет в инвентарь вызывающий код
      * @param player Игрок
+     * @return Копии предметов набора или пустой список, если набор выключен или на кулдауне
      */
-    public void giveStartKit(Player player) {
-        if (!canGiveKit(player)) {
-            return;
+    public List<ItemStack> takeStartKit(Player player) {
+        if (!configManager.isStartKitEnabled()) {
+            return Collections.emptyList();
         }
 
-        // Выдаем предметы
-        List<ItemStack> items = configManager.getStartKitItems();
-        for (ItemStack item : items) {
-            if (item != null && item.getType() != Material.AIR) {
-                // Проверяем, есть ли место в инвентаре
-                HashMap<Integer, ItemStack> leftover = player.getInventory().addItem(item);
-                // Если инвентарь полон, выкидываем предметы на землю
-                for (ItemStack left : leftover.values()) {
-                    player.getWorld().dropItemNaturally(player.getLocation(), left);
-                }
-            }
+        // Проверяем кулдаун и сразу сохраняем время выдачи
+        long now = System.currentTimeMillis();
+        if (!kitCooldowns.tryAcquire(player.getUniqueId(), now, getCooldownMillis())) {
+            return Collections.emptyList();
         }
+        // На диск время попадет при следующем асинхронном сбросе
+        cooldownStorage.save(player.getUniqueId(), now);
 
-        // Сохраняем время выдачи
-        lastKitGiven.put(player.getUniqueId(), System.currentTimeMillis());
+        List<ItemStack> items = configManager.getStartKitItems();
+        items.removeIf(item -> item == null || item.getType() == Material.AIR);
+        return items;
     }
 
     /**
@@ -87,41 +92,8 @@ public class StartKitManager {
         }
     }
 
-    /**
-     * Проверяет, есть ли у игрока точка спавна (кровать или якорь ада)
-     * @param player Игрок
-     * @return true, если у игрока есть точка спавна
-     */
-    public boolean hasSpawnPoint(Player player) {
-        // Проверяем кровать
-        if (player.getBedSpawnLocation() != null) {
-            return true;
-        }
-
-        // Проверяем якорь ада через Paper API
-        try {
-            // В Paper API можно проверить через respawn event
-            // Но для простоты считаем, что если нет кровати, то нет точки спавна
-            // Якорь ада проверяется в PlayerRespawnEvent через isAnchorSpawn()
-            return false;
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    /**
-     * Очищает данные об игроке (для освобождения памяти)
-     * @param playerId UUID игрока
-     */
-    public void removePlayerData(UUID playerId) {
-        lastKitGiven.remove(playerId);
-    }
-
-    /**
-     * Очищает все данные (для перезагрузки плагина)
-     */
-    public void clearAllData() {
-        lastKitGiven.clear();
+    private long getCooldownMillis() {
+        return configManager.getStartKitCooldown() * 1000L; // Конвертируем секунды в миллисекунды
     }
 }
 
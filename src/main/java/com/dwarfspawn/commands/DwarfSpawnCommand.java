@@ -2,6 +2,7 @@ package com.dwarfspawn.commands;
 
 import com.dwarfspawn.ConfigManager;
 import com.dwarfspawn.DwarfSpawn;
+import com.dwarfspawn.spawn.SpawnStats;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -22,7 +23,7 @@ public class DwarfSpawnCommand implements CommandExecutor, TabCompleter {
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
         if (args.length == 0) {
-            sender.sendMessage("§6[DwarfSpawn] §7Использование: /dwarfspawn reload");
+            sender.sendMessage("§6[DwarfSpawn] §7Использование: /dwarfspawn <reload|stats>");
             return true;
         }
 
@@ -34,6 +35,9 @@ public class DwarfSpawnCommand implements CommandExecutor, TabCompleter {
 
             try {
                 configManager.reloadConfig();
+                // Точки в пуле и кэш колонн найдены по старым настройкам
+                plugin.resetSpawnCaches();
+                plugin.scheduleStatsLog();
                 sender.sendMessage("§6[DwarfSpawn] §aКонфигурация успешно перезагружена!");
             } catch (org.bukkit.configuration.InvalidConfigurationException e) {
                 sender.sendMessage("§c[DwarfSpawn] §7Ошибка при перезагрузке конфигурации!");
@@ -55,7 +59,25 @@ public class DwarfSpawnCommand implements CommandExecutor, TabCompleter {
             return true;
         }
 
-        sender.sendMessage("§6[DwarfSpawn] §7Неизвестная подкоманда. Используйте: /dwarfspawn reload");
+        if (args[0].equalsIgnoreCase("stats")) {
+            if (!sender.hasPermission("dwarfspawn.stats")) {
+                sender.sendMessage("§c[DwarfSpawn] §7У вас нет прав на выполнение этой команды!");
+                return true;
+            }
+
+            SpawnStats stats = plugin.getSpawnStats();
+            if (args.length > 1 && args[1].equalsIgnoreCase("reset")) {
+                stats.reset();
+                sender.sendMessage("§6[DwarfSpawn] §aСтатистика спавна сброшена!");
+                return true;
+            }
+            for (String line : stats.formatReport()) {
+                sender.sendMessage(line);
+            }
+            return true;
+        }
+
+        sender.sendMessage("§6[DwarfSpawn] §7Неизвестная подкоманда. Используйте: /dwarfspawn <reload|stats>");
         return true;
     }
 
@@ -66,6 +88,14 @@ public class DwarfSpawnCommand implements CommandExecutor, TabCompleter {
             if (sender.hasPermission("dwarfspawn.reload")) {
                 completions.add("reload");
             }
+            if (sender.hasPermission("dwarfspawn.stats")) {
+                completions.add("stats");
+            }
+            return completions;
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("stats") && sender.hasPermission("dwarfspawn.stats")) {
+            List<String> completions = new ArrayList<>();
+            completions.add("reset");
             return completions;
         }
         return new ArrayList<>();
@@ -0,0 +1,91 @@
+package com.dwarfspawn.compat;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.World;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.inventory.meta.BookMeta;
+
+import java.util.logging.Logger;
+
+/**
+ * Возможности сервера, которые есть только в Paper.
+ * Определяются один раз при включении плагина, поэтому в горячем пути нет рефлексии.
+ */
+public final class PaperCompat {
+    private static boolean adventureBookPages;
+    private static boolean asyncChunks;
+    private static boolean potentialBedLocation;
+    private static boolean respawnReason;
+
+    private PaperCompat() {
+    }
+
+    /**
+     * Определяет возможности сервера. Вызывается один раз в onEnable до создания менеджеров.
+     * @param logger Логгер плагина
+     */
+    public static void init(Logger logger) {
+        adventureBookPages = hasMethod(BookMeta.class, "addPages", Component[].class);
+        asyncChunks = hasMethod(World.class, "getChunkAtAsync", int.class, int.class)
+                && hasMethod(Entity.class, "teleportAsync", Location.class);
+        potentialBedLocation = hasMethod(Player.class, "getPotentialBedLocation");
+        respawnReason = hasMethod(PlayerRespawnEvent.class, "getRespawnReason");
+
+        if (!asyncChunks) {
+            logger.warning("Сервер не поддерживает асинхронную загрузку чанков (нужен Paper). "
+                    + "Асинхронный поиск и пул точек спавна отключены.");
+        }
+    }
+
+    /**
+     * @return true, если страницы книги можно задавать компонентами Adventure (ссылки, цвета)
+     */
+    public static boolean hasAdventureBookPages() {
+        return adventureBookPages;
+    }
+
+    /**
+     * @return true, если доступны World#getChunkAtAsync и Entity#teleportAsync
+     */
+    public static boolean hasAsyncChunks() {
+        return asyncChunks;
+    }
+
+    /**
+     * @return true, если игрок возрождается у якоря возрождения
+     */
+    public static boolean isAnchorSpawn(PlayerRespawnEvent event) {
+        return event.isAnchorSpawn();
+    }
+
+    /**
+     * @return true, если игрок возрождается после смерти, а не, например, выходит из Энда
+     *         через портал. Если сервер не сообщает причину - true, как раньше
+     */
+    public static boolean isDeathRespawn(PlayerRespawnEvent event) {
+        return !respawnReason || event.getRespawnReason() == PlayerRespawnEvent.RespawnReason.DEATH;
+    }
+
+    /**
+     * Точка возрождения игрока (кровать или якорь). В Paper берется без проверки блока,
+     * поэтому ее чанк не загружается; в Spigot - через getBedSpawnLocation, который
+     * проверяет блок
+     * @return Точка возрождения или null, если ее нет
+     */
+    @SuppressWarnings("deprecation")
+    public static Location getPotentialBedLocation(Player player) {
+        return potentialBedLocation ? player.getPotentialBedLocation() : player.getBedSpawnLocation();
+    }
+
+    private static boolean hasMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            type.getMethod(name, parameterTypes);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
@@ -1,31 +1,127 @@
 package com.dwarfspawn.listeners;
 
 import com.dwarfspawn.ConfigManager;
+import com.dwarfspawn.KitDelivery;
 import com.dwarfspawn.StartKitManager;
+import com.dwarfspawn.compat.PaperCompat;
+import com.dwarfspawn.spawn.BudgetedSpawnSearch;
+import com.dwarfspawn.spawn.SpawnLocationFinder;
+import com.dwarfspawn.spawn.SpawnPointPool;
+import com.dwarfspawn.spawn.SpawnSearchMode;
+import com.dwarfspawn.spawn.SpeculativeSpawns;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
-import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerRespawnEvent;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.scheduler.BukkitRunnable;
+import org.spigotmc.event.player.PlayerSpawnLocationEvent;
 
 import com.dwarfspawn.DwarfSpawn;
 
-import java.util.Random;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public class PlayerDeathListener implements Listener {
+    // Через сколько тиков место первого спавна отбрасывается, если игрок так и не вошел
+    // (соединение оборвалось между AsyncPlayerPreLoginEvent и PlayerLoginEvent)
+    private static final long FIRST_JOIN_EXPIRY_TICKS = 600L;
+
     private final ConfigManager configManager;
     private final StartKitManager startKitManager;
-    private final Random random = new Random();
-
-    public PlayerDeathListener(ConfigManager configManager, StartKitManager startKitManager) {
+    private final KitDelivery kitDelivery;
+    private final SpawnLocationFinder spawnLocationFinder;
+    private final SpawnPointPool spawnPointPool;
+    private final BudgetedSpawnSearch budgetedSpawnSearch;
+    private final SpeculativeSpawns speculativeSpawns;
+    // Новые игроки, которые уже появились на найденном месте (только главный поток)
+    private final Set<UUID> placedOnJoin = new HashSet<>();
+
+    public PlayerDeathListener(ConfigManager configManager, StartKitManager startKitManager,
+            KitDelivery kitDelivery, SpawnLocationFinder spawnLocationFinder, SpawnPointPool spawnPointPool,
+            BudgetedSpawnSearch budgetedSpawnSearch, SpeculativeSpawns speculativeSpawns) {
         this.configManager = configManager;
         this.startKitManager = startKitManager;
+        this.kitDelivery = kitDelivery;
+        this.spawnLocationFinder = spawnLocationFinder;
+        this.spawnPointPool = spawnPointPool;
+        this.budgetedSpawnSearch = budgetedSpawnSearch;
+        this.speculativeSpawns = speculativeSpawns;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        // Асинхронный поток - здесь можно читать сохраненный кулдаун с диска
+        startKitManager.loadPlayerData(event.getUniqueId());
+        prepareFirstJoinSpawn(event.getUniqueId());
+    }
+
+    /**
+     * Для нового игрока заранее ищет место первого спавна, пока он подключается,
+     * чтобы игрок сразу появился на нем, а не в центре мира с последующей телепортацией.
+     * Вызывается в асинхронном потоке входа и только ставит поиск в главный поток:
+     * вход поиск не ждет, место используется, только если оно найдено к моменту спавна
+     */
+    private void prepareFirstJoinSpawn(UUID playerId) {
+        if (!configManager.isFirstJoinPreLoginSearch() || Bukkit.getOfflinePlayer(playerId).hasPlayedBefore()) {
+            return;
+        }
+
+        // Поиск запускается в главном потоке, как и при смерти
+        Bukkit.getScheduler().runTask(DwarfSpawn.getInstance(), () -> {
+            // Игрок уже вошел, и место ищется при входе
+            if (Bukkit.getPlayer(playerId) != null) {
+                return;
+            }
+            CompletableFuture<Location> started = startSpeculativeSearch();
+            if (started != null) {
+                speculativeSpawns.park(playerId, started);
+                // Вошедший игрок забирает место раньше, здесь отбрасываются только брошенные
+                Bukkit.getScheduler().runTaskLater(DwarfSpawn.getInstance(),
+                        () -> speculativeSpawns.discard(playerId, started), FIRST_JOIN_EXPIRY_TICKS);
+            }
+        });
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        // Вход отклонен (бан, вайтлист) - место первого спавна больше не нужно
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            speculativeSpawns.discard(event.getPlayer().getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onPlayerSpawnLocation(PlayerSpawnLocationEvent event) {
+        // Новый игрок появляется сразу на месте, найденном во время входа: клиенту
+        // не нужно сначала загружать центр мира, а затем место после телепортации
+        try {
+            Player player = event.getPlayer();
+            if (player.hasPlayedBefore()) {
+                return;
+            }
+
+            Location found = speculativeSpawns.takeIfReady(player.getUniqueId());
+            Location spawnLocation = found != null ? spawnLocationFinder.revalidate(found) : null;
+            if (spawnLocation != null) {
+                event.setSpawnLocation(spawnLocation);
+                placedOnJoin.add(player.getUniqueId());
+            }
+        } catch (Exception e) {
+            // Найдем место при входе, как раньше
+        }
     }
 
     @EventHandler(priority = EventPriority.HIGH)
@@ -39,12 +135,36 @@ public class PlayerDeathListener implements Listener {
                 return; // Игрок уже играл, не обрабатываем
             }
 
-            // Проверяем, есть ли у игрока своя точка спавна (кровать)
-            Location bedSpawn = player.getBedSpawnLocation();
-            if (bedSpawn != null) {
+            // Проверяем, есть ли у игрока своя точка спавна (кровать) - в Paper без
+            // проверки блока кровати, поэтому ее чанк не загружается
+            if (PaperCompat.getPotentialBedLocation(player) != null) {
                 return; // У игрока есть кровать, не вмешиваемся
             }
 
+            // Игрок уже появился на месте, найденном во время входа
+            if (placedOnJoin.remove(player.getUniqueId())) {
+                giveKitAndBookToNewPlayer(player);
+                return;
+            }
+
+            // Поиск, начатый во время входа: не успел завершиться - дождемся его,
+            // завершился уже после выбора места спавна - переместим игрока на найденное место
+            CompletableFuture<Location> firstJoinSearch = speculativeSpawns.take(player.getUniqueId());
+            if (firstJoinSearch != null) {
+                if (!firstJoinSearch.isDone()) {
+                    firstJoinSearch.thenAccept(location -> teleportWhenReady(player, location));
+                    giveKitAndBookToNewPlayer(player);
+                    return;
+                }
+                Location found = SpeculativeSpawns.getIfReady(firstJoinSearch);
+                Location readyLocation = found != null ? spawnLocationFinder.revalidate(found) : null;
+                if (readyLocation != null) {
+                    teleportWhenReady(player, readyLocation);
+                    giveKitAndBookToNewPlayer(player);
+                    return;
+                }
+            }
+
             // Получаем базовую точку спавна
             Location baseSpawn = configManager.getSpawnLocation();
             if (baseSpawn == null) {
@@ -60,31 +180,26 @@ public class PlayerDeathListener implements Listener {
                 return;
             }
 
-            // Генерируем место спавна для нового игрока
-            Location spawnLocation;
-            if (configManager.isRadiusEnabled()) {
-                spawnLocation = generateRandomSpawnLocation(baseSpawn, world);
-            } else {
-                spawnLocation = baseSpawn.clone();
-            }
-
-            if (spawnLocation == null) {
-                // Если не удалось найти место, все равно выдаем кит и книгу новому игроку
+            // Сначала пробуем взять готовую точку из пула
+            Location pooledLocation = configManager.isRadiusEnabled() ? spawnPointPool.poll(world) : null;
+            if (pooledLocation != null) {
+                player.teleport(pooledLocation);
                 giveKitAndBookToNewPlayer(player);
-                return; // Не удалось найти подходящее место
+                return;
             }
 
-            // Загружаем чанк перед проверкой спавна (важно для первого входа)
-            int chunkX = spawnLocation.getBlockX() >> 4;
-            int chunkZ = spawnLocation.getBlockZ() >> 4;
-            if (!world.isChunkLoaded(chunkX, chunkZ)) {
-                // Загружаем чанк синхронно (это безопасно в главном потоке)
-                world.loadChunk(chunkX, chunkZ);
+            // В асинхронном режиме и режиме с бюджетом ищем место, не задерживая тик,
+            // и телепортируем игрока, когда место найдено
+            CompletableFuture<Location> deferredSearch = startDeferredSearch(baseSpawn, world);
+            if (deferredSearch != null) {
+                deferredSearch.thenAccept(location -> teleportWhenReady(player, location));
+                giveKitAndBookToNewPlayer(player);
+                return;
             }
 
-            // Проверяем и корректируем местоположение
-            spawnLocation = findValidSpawnLocation(spawnLocation, world);
-
+            // Ищем место спавна для нового игрока (чанки загружаются синхронно,
+            // это безопасно в главном потоке)
+            Location spawnLocation = spawnLocationFinder.findSpawnLocation(baseSpawn, world);
             if (spawnLocation != null) {
                 // Телепортируем игрока на найденное место
                 player.teleport(spawnLocation);
@@ -106,45 +221,68 @@ public class PlayerDeathListener implements Listener {
     }
 
     /**
-     * Выдает стартовый набор и книгу новому игроку
+     * Выдает стартовый набор и книгу новому игроку.
+     * Вызывается только для игроков без своей точки спавна (проверено в onPlayerJoin)
      * @param player Игрок
      */
     private void giveKitAndBookToNewPlayer(Player player) {
-        // Выдаем стартовый набор при первом входе (если нет точки спавна)
-        if (!startKitManager.hasSpawnPoint(player)) {
-            // Выдаем набор с небольшой задержкой, чтобы игрок успел заспавниться
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    if (player.isOnline()) {
-                        startKitManager.giveStartKit(player); // Предметы с кулдауном
-                        startKitManager.giveEffects(player); // Эффекты всегда
-                    }
-                }
-            }.runTaskLater(DwarfSpawn.getInstance(), 20L); // 1 секунда задержки
-        }
+        // Выдаем набор и книгу с небольшой задержкой, чтобы игрок успел заспавниться
+        kitDelivery.schedule(player, 20L, KitDelivery.KIT | KitDelivery.EFFECTS | KitDelivery.BOOK); // 1 секунда
+    }
 
-        // Выдаем книгу при первом входе
-        if (configManager.isFirstJoinBookEnabled()) {
-            ItemStack book = configManager.getFirstJoinBook();
-            if (book != null) {
-                // Выдаем книгу с небольшой задержкой
-                new BukkitRunnable() {
-                    @Override
-                    public void run() {
-                        if (player.isOnline()) {
-                            // Проверяем, есть ли место в инвентаре
-                            if (player.getInventory().firstEmpty() != -1) {
-                                player.getInventory().addItem(book);
-                            } else {
-                                // Если инвентарь полон, выкидываем книгу на землю
-                                player.getWorld().dropItemNaturally(player.getLocation(), book);
-                            }
-                        }
-                    }
-                }.runTaskLater(DwarfSpawn.getInstance(), 40L); // 2 секунды задержки
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerDeath(PlayerDeathEvent event) {
+        // Начинаем искать место спавна сразу после смерти, пока игрок смотрит на экран
+        // смерти, чтобы при нажатии "Возродиться" место уже было готово
+        try {
+            if (!configManager.isSpeculativeSpawnSearch()) {
+                return;
+            }
+
+            Player player = event.getEntity();
+            // Точка возрождения (в Paper без проверки блока кровати/якоря и загрузки чанка).
+            // Если она есть, возрождением, скорее всего, займется сама игра
+            if (PaperCompat.getPotentialBedLocation(player) != null) {
+                return;
+            }
+
+            CompletableFuture<Location> search = startSpeculativeSearch();
+            if (search != null) {
+                speculativeSpawns.park(player.getUniqueId(), search);
             }
+        } catch (Exception e) {
+            // Заранее не нашли - найдем при возрождении
+        }
+    }
+
+    /**
+     * Начинает заранее искать место спавна в основном мире
+     * @return Future с найденным местом или null, если точка спавна не настроена
+     */
+    private CompletableFuture<Location> startSpeculativeSearch() {
+        Location baseSpawn = configManager.getSpawnLocation();
+        if (baseSpawn == null || baseSpawn.getWorld() == null) {
+            return null;
         }
+        World world = baseSpawn.getWorld();
+
+        // Готовая точка из пула сразу закрепляется за игроком
+        Location pooledLocation = configManager.isRadiusEnabled() ? spawnPointPool.poll(world) : null;
+        if (pooledLocation != null) {
+            return CompletableFuture.completedFuture(pooledLocation);
+        }
+        CompletableFuture<Location> search = startDeferredSearch(baseSpawn, world);
+        if (search == null) {
+            // В режиме SYNC заранее ищем с бюджетом времени на тик, чтобы не задерживать тик
+            search = budgetedSpawnSearch.submit(baseSpawn, world);
+        }
+        return search;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        speculativeSpawns.discard(event.getPlayer().getUniqueId());
+        placedOnJoin.remove(event.getPlayer().getUniqueId());
     }
 
     @EventHandler(priority = EventPriority.HIGH)
@@ -153,37 +291,24 @@ public class PlayerDeathListener implements Listener {
         try {
             Player player = event.getPlayer();
 
-            // Проверяем, есть ли у игрока своя точка спавна (кровать или якорь)
-            Location bedSpawn = player.getBedSpawnLocation();
-
-            // Если у игрока есть кровать, не вмешиваемся
-            if (bedSpawn != null) {
+            // Возрождение не после смерти (выход из Энда через портал) - не вмешиваемся
+            if (!PaperCompat.isDeathRespawn(event)) {
                 return;
             }
 
-            // Проверяем якорь возрождения через Paper API
-            // В Paper API есть метод isAnchorSpawn()
-            try {
-                java.lang.reflect.Method isAnchorSpawnMethod = event.getClass().getMethod("isAnchorSpawn");
-                boolean isAnchorSpawn = (Boolean) isAnchorSpawnMethod.invoke(event);
-                if (isAnchorSpawn) {
-                    // Игрок использует якорь возрождения, не вмешиваемся
-                    return;
-                }
-            } catch (Exception e) {
-                // Метод не найден (не Paper или старая версия), используем альтернативный
-                // способ
-                Location eventRespawnLocation = event.getRespawnLocation();
-                Location worldSpawn = player.getWorld().getSpawnLocation();
-
-                // Если локация спавна далеко от спавна мира, возможно это якорь
-                if (eventRespawnLocation != null) {
-                    double distanceToWorldSpawn = eventRespawnLocation.distance(worldSpawn);
-                    if (distanceToWorldSpawn > 5) {
-                        // Локация далеко от спавна мира, вероятно это якорь возрождения
-                        return;
-                    }
+            // Место, которое начали искать еще в момент смерти (если начинали)
+            CompletableFuture<Location> speculativeSearch = speculativeSpawns.take(player.getUniqueId());
+
+            // Проверяем, возрождается ли игрок у своей точки спавна (кровать или якорь).
+            // Место возрождения сервер уже выбрал до события, поэтому решение берется из
+            // данных самого события, без повторной проверки блока и загрузки его чанка
+            if (event.isBedSpawn() || PaperCompat.isAnchorSpawn(event)) {
+                // У игрока есть кровать или якорь, не вмешиваемся. Место, найденное
+                // заранее, не понадобится - останавливаем его поиск
+                if (speculativeSearch != null) {
+                    speculativeSearch.cancel(false);
                 }
+                return;
             }
 
             // Получаем базовую точку спавна из конфига (это всегда основной мир - world)
@@ -204,283 +329,82 @@ public class PlayerDeathListener implements Listener {
             // мире,
             // если у них нет своей точки спавна в других мирах.
 
-            Location spawnLocation;
-
-            if (configManager.isRadiusEnabled()) {
-                // Генерируем случайную точку в радиусе в основном мире
-                spawnLocation = generateRandomSpawnLocation(baseSpawn, spawnWorld);
-            } else {
-                // Используем конкретную точку спавна в основном мире
-                spawnLocation = baseSpawn.clone();
-            }
-
-            // Проверяем, что spawnLocation не null перед вызовом findValidSpawnLocation
-            if (spawnLocation == null) {
-                return;
+            // Сначала берем место, найденное заранее, а если его нет - готовую точку из пула
+            Location readyLocation = null;
+            if (speculativeSearch != null) {
+                if (speculativeSearch.isDone()) {
+                    // Место могло устареть, пока игрок был на экране смерти
+                    Location found = SpeculativeSpawns.getIfReady(speculativeSearch);
+                    readyLocation = found != null ? spawnLocationFinder.revalidate(found) : null;
+                } else {
+                    // Поиск не успел завершиться - отменяем его и ищем так, как задано
+                    // в spawn-search-mode (в режиме SYNC - сразу, без ожидания в центре)
+                    speculativeSearch.cancel(false);
+                }
             }
-
-            // Проверяем и корректируем местоположение в основном мире
-            spawnLocation = findValidSpawnLocation(spawnLocation, spawnWorld);
-
-            if (spawnLocation != null) {
-                event.setRespawnLocation(spawnLocation);
+            if (readyLocation == null && configManager.isRadiusEnabled()) {
+                readyLocation = spawnPointPool.poll(spawnWorld);
             }
 
-            // Выдаем стартовый набор при смерти (если нет точки спавна)
-            // Проверяем якорь ада через Paper API
-            boolean isAnchorSpawn = false;
-            try {
-                java.lang.reflect.Method isAnchorSpawnMethod = event.getClass().getMethod("isAnchorSpawn");
-                isAnchorSpawn = (Boolean) isAnchorSpawnMethod.invoke(event);
-            } catch (Exception e) {
-                // Метод не найден (не Paper или старая версия), считаем что не якорь
-            }
-
-            if (!isAnchorSpawn && !startKitManager.hasSpawnPoint(player)) {
-                // Выдаем эффекты всегда при возрождении (если включены)
-                new BukkitRunnable() {
-                    @Override
-                    public void run() {
-                        startKitManager.giveEffects(player); // Эффекты всегда
+            if (readyLocation != null) {
+                event.setRespawnLocation(readyLocation);
+            } else {
+                CompletableFuture<Location> deferredSearch = startDeferredSearch(baseSpawn, spawnWorld);
+                if (deferredSearch != null) {
+                    // Пока идет поиск, игрок ждет в центре спавна (если его чанк уже
+                    // загружен), а затем телепортируется на найденное место
+                    Location holdingLocation = spawnLocationFinder.findHoldingLocation(baseSpawn, spawnWorld);
+                    if (holdingLocation != null) {
+                        event.setRespawnLocation(holdingLocation);
                     }
-                }.runTaskLater(DwarfSpawn.getInstance(), 20L); // 1 секунда задержки
-
-                // Выдаем предметы с учетом кулдауна
-                new BukkitRunnable() {
-                    @Override
-                    public void run() {
-                        startKitManager.giveStartKit(player); // Предметы с кулдауном
+                    deferredSearch.thenAccept(location -> teleportWhenReady(player, location));
+                } else {
+                    // Ищем место в основном мире: случайную точку в радиусе или конкретную точку спавна
+                    Location spawnLocation = spawnLocationFinder.findSpawnLocation(baseSpawn, spawnWorld);
+                    if (spawnLocation != null) {
+                        event.setRespawnLocation(spawnLocation);
                     }
-                }.runTaskLater(DwarfSpawn.getInstance(), 20L); // 1 секунда задержки
+                }
             }
+
+            // Выдаем стартовый набор при смерти (кровать и якорь уже исключены выше):
+            // эффекты всегда, предметы с учетом кулдауна
+            kitDelivery.schedule(player, 20L, KitDelivery.KIT | KitDelivery.EFFECTS); // 1 секунда задержки
         } catch (Exception e) {
             // Если что-то пошло не так, используем дефолтный спавн Minecraft
             // Не логируем ошибку, чтобы не засорять консоль
         }
     }
 
-    private Location generateRandomSpawnLocation(Location center, World world) {
-        try {
-            int radius = configManager.getSpawnRadius();
-            int maxHeight = configManager.getMaxSpawnHeight();
-            int minHeight = configManager.getMinSpawnHeight();
-
-            // Генерируем случайные координаты в радиусе
-            int attempts = 0;
-            int maxAttempts = configManager.getMaxSpawnAttempts();
-
-            while (attempts < maxAttempts) {
-                double angle = random.nextDouble() * 2 * Math.PI;
-                double distance = random.nextDouble() * radius;
-
-                double x = center.getX() + Math.cos(angle) * distance;
-                double z = center.getZ() + Math.sin(angle) * distance;
-
-                // Начинаем поиск с середины диапазона высот для лучшего результата
-                double y = (minHeight + maxHeight) / 2.0;
-
-                Location candidate = new Location(world, x, y, z);
-
-                // Сначала пробуем найти место точно в этой точке
-                Location validLocation = findValidSpawnLocation(candidate, world);
-
-                // Если не нашли, пробуем поискать в небольшом радиусе вокруг (5 блоков)
-                // Это помогает найти место, если рядом есть подходящие блоки
-                if (validLocation == null) {
-                    validLocation = findValidSpawnLocationInRadius(candidate, world, 5);
-                }
-
-                if (validLocation != null) {
-                    return validLocation;
-                }
-
-                attempts++;
-            }
-
-            // Если не удалось найти подходящее место, возвращаем базовую точку
-            return findValidSpawnLocation(center, world);
-        } catch (Exception e) {
-            // Если что-то пошло не так, возвращаем null (используется дефолтный спавн)
-            return null;
+    /**
+     * Телепортирует игрока на место, найденное отложенным поиском,
+     * если он все еще на сервере и жив
+     * @param player Игрок
+     * @param location Найденное место или null
+     */
+    private void teleportWhenReady(Player player, Location location) {
+        if (location == null || !player.isOnline() || player.isDead()) {
+            return;
         }
-    }
-
-    private Location findValidSpawnLocationInRadius(Location center, World world, int searchRadius) {
-        // Ищем подходящее место в радиусе вокруг центральной точки
-        // Проверяем точки в квадрате вокруг центра
-        for (int dx = -searchRadius; dx <= searchRadius; dx++) {
-            for (int dz = -searchRadius; dz <= searchRadius; dz++) {
-                // Пропускаем точки слишком далеко от центра (вне круга)
-                if (dx * dx + dz * dz > searchRadius * searchRadius) {
-                    continue;
-                }
-
-                Location candidate = center.clone().add(dx, 0, dz);
-                Location validLocation = findValidSpawnLocation(candidate, world);
-
-                if (validLocation != null) {
-                    return validLocation;
-                }
-            }
+        if (PaperCompat.hasAsyncChunks()) {
+            player.teleportAsync(location);
+        } else {
+            player.teleport(location);
         }
-
-        return null;
     }
 
-    private Location findValidSpawnLocation(Location location, World world) {
-        try {
-            // Проверяем, что location не null
-            if (location == null || world == null) {
-                return null;
-            }
-
-            int minHeight = configManager.getMinSpawnHeight();
-            int maxHeight = configManager.getMaxSpawnHeight();
-            boolean checkBlockAbove = configManager.shouldCheckBlockAbove();
-
-            int startY = Math.min((int) location.getY(), maxHeight);
-            int minY = Math.max(world.getMinHeight(), minHeight); // Не ищем ниже минимальной высоты
-
-            // Проверяем, что чанк загружен перед проверкой блоков
-            int chunkX = location.getBlockX() >> 4;
-            int chunkZ = location.getBlockZ() >> 4;
-            if (!world.isChunkLoaded(chunkX, chunkZ)) {
-                // Чанк не загружен, пытаемся загрузить его
-                world.loadChunk(chunkX, chunkZ);
-                // Если все еще не загружен, возвращаем null
-                if (!world.isChunkLoaded(chunkX, chunkZ)) {
-                    return null;
-                }
-            }
-
-            // Ищем подходящее место, начиная с максимальной высоты и спускаясь вниз
-            // Это гарантирует, что мы найдем место под землей, а не на поверхности
-            for (int y = startY; y >= minY; y--) {
-                Location testLocation = new Location(world, location.getX(), y, location.getZ());
-
-                // Проверяем, что чанк для этой координаты загружен
-                int testChunkX = testLocation.getBlockX() >> 4;
-                int testChunkZ = testLocation.getBlockZ() >> 4;
-                if (!world.isChunkLoaded(testChunkX, testChunkZ)) {
-                    // Пытаемся загрузить чанк
-                    world.loadChunk(testChunkX, testChunkZ);
-                    // Если все еще не загружен, пропускаем эту координату
-                    if (!world.isChunkLoaded(testChunkX, testChunkZ)) {
-                        continue;
-                    }
-                }
-
-                // Проверяем, что блок под ногами твердый
-                Material groundBlock = world.getBlockAt(testLocation.clone().add(0, -1, 0)).getType();
-                if (!groundBlock.isSolid()) {
-                    continue;
-                }
-
-                // Проверяем, что место для спавна свободно (воздух или безопасный блок)
-                Material spawnBlock = world.getBlockAt(testLocation).getType();
-                if (!isSafeBlock(spawnBlock)) {
-                    continue;
-                }
-
-                // Проверяем, что место не под водой или лавой
-                if (isWaterOrLava(spawnBlock)) {
-                    continue; // Не спавним в воде или лаве
-                }
-
-                // Проверяем блок над головой (на высоте +1) - должен быть воздух для головы
-                Material headBlock = world.getBlockAt(testLocation.clone().add(0, 1, 0)).getType();
-
-                // Проверяем, что над головой нет воды или лавы
-                if (isWaterOrLava(headBlock)) {
-                    continue; // Не спавним, если над головой вода или лава
-                }
-
-                // Проверяем, что место для головы безопасно (воздух или не-твердый блок)
-                if (!isSafeBlock(headBlock)) {
-                    continue; // Над головой твердый блок - нельзя спавнить
-                }
-
-                // ВАЖНО: Проверяем наличие блока выше для защиты от солнца
-                // Игрок должен помещаться (2 блока высоты), затем проверяем наличие блока выше
-                if (checkBlockAbove) {
-                    // Проверяем, что на высоте +2 тоже есть место (для полного роста игрока)
-                    Material blockAtHeight2 = world.getBlockAt(testLocation.clone().add(0, 2, 0)).getType();
-                    if (!isSafeBlock(blockAtHeight2) || isWaterOrLava(blockAtHeight2)) {
-                        continue; // На высоте +2 нет места или есть вода/лава
-                    }
-
-                    // Проверяем, что начиная с высоты +2 и выше (до максимальной высоты мира) есть
-                    // хотя бы один блок
-                    // Это означает, что над игроком есть защита от солнца (не открытое небо)
-                    boolean hasBlockAbove = false;
-                    int startCheckY = (int) testLocation.getY() + 2;
-                    int maxCheckHeight = world.getMaxHeight();
-
-                    for (int checkY = startCheckY; checkY <= maxCheckHeight; checkY++) {
-                        Location checkLocation = new Location(world, testLocation.getX(), checkY, testLocation.getZ());
-
-                        // Проверяем, что чанк загружен перед проверкой блока
-                        int checkChunkX = checkLocation.getBlockX() >> 4;
-                        int checkChunkZ = checkLocation.getBlockZ() >> 4;
-                        if (!world.isChunkLoaded(checkChunkX, checkChunkZ)) {
-                            // Пытаемся загрузить чанк
-                            world.loadChunk(checkChunkX, checkChunkZ);
-                            // Если все еще не загружен, пропускаем эту проверку
-                            // Но продолжаем искать дальше, так как чанки могут быть загружены выше
-                            if (!world.isChunkLoaded(checkChunkX, checkChunkZ)) {
-                                continue;
-                            }
-                        }
-
-                        Material blockAbove = world.getBlockAt(checkLocation).getType();
-                        // Если нашли любой блок (не воздух, не вода, не лава) - это защита от солнца
-                        if (!blockAbove.isAir() &&
-                                blockAbove != Material.CAVE_AIR &&
-                                blockAbove != Material.VOID_AIR &&
-                                !isWaterOrLava(blockAbove)) {
-                            hasBlockAbove = true;
-                            break; // Нашли блок - есть защита от солнца
-                        }
-                    }
-
-                    if (!hasBlockAbove) {
-                        continue; // Над игроком нет блока (открытое небо), пропускаем
-                    }
-                    // Если есть блок выше - это защита от солнца, подходит!
-                } else {
-                    // Если проверка блока над головой выключена, просто проверяем безопасность
-                    if (!isSafeBlock(headBlock)) {
-                        continue;
-                    }
-                }
-
-                // Нашли подходящее место! (под землей, с блоком над головой)
-                return testLocation;
-            }
-
-            // Если не нашли подходящее место, возвращаем null
-            return null;
-        } catch (Exception e) {
-            // Если что-то пошло не так, возвращаем null (используется дефолтный спавн)
-            return null;
+    /**
+     * Запускает поиск места, который завершится позже (в режимах ASYNC и BUDGETED)
+     * @return Future с найденным местом или null, если место нужно искать сразу
+     */
+    private CompletableFuture<Location> startDeferredSearch(Location baseSpawn, World world) {
+        SpawnSearchMode mode = configManager.getSpawnSearchMode();
+        if (mode == SpawnSearchMode.BUDGETED) {
+            return budgetedSpawnSearch.submit(baseSpawn, world);
         }
-    }
-
-    private boolean isWaterOrLava(Material material) {
-        return material == Material.WATER ||
-                material == Material.LAVA ||
-                material == Material.KELP ||
-                material == Material.KELP_PLANT ||
-                material == Material.SEAGRASS ||
-                material == Material.TALL_SEAGRASS ||
-                material == Material.BUBBLE_COLUMN;
-    }
-
-    private boolean isSafeBlock(Material material) {
-        // Проверяем, что блок безопасен для спавна
-        return material.isAir() ||
-                material == Material.CAVE_AIR ||
-                material == Material.VOID_AIR ||
-                !material.isSolid();
+        if (mode == SpawnSearchMode.ASYNC && PaperCompat.hasAsyncChunks()) {
+            return spawnLocationFinder.findSpawnLocationAsync(baseSpawn, world);
+        }
+        return null;
     }
 }
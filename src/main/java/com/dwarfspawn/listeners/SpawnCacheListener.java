@@ -0,0 +1,160 @@
+package com.dwarfspawn.listeners;
+
+import com.dwarfspawn.spawn.ColumnCache;
+import com.dwarfspawn.spawn.SpawnIndex;
+import com.dwarfspawn.spawn.SpawnPointPool;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.BlockState;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFormEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockGrowEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.player.PlayerBucketEmptyEvent;
+import org.bukkit.event.player.PlayerBucketFillEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.StructureGrowEvent;
+
+import java.util.List;
+
+/**
+ * Удаляет устаревшие заранее найденные точки спавна, результаты проверки колонн
+ * и места из индекса прогрева,
+ * когда меняются блоки или чанк выгружается. События ловят не все изменения
+ * блоков, поэтому места из кэша колонн еще и перепроверяются при поиске
+ */
+public class SpawnCacheListener implements Listener {
+    private final SpawnPointPool spawnPointPool;
+    private final ColumnCache columnCache;
+    private final SpawnIndex spawnIndex;
+
+    public SpawnCacheListener(SpawnPointPool spawnPointPool, ColumnCache columnCache, SpawnIndex spawnIndex) {
+        this.spawnPointPool = spawnPointPool;
+        this.columnCache = columnCache;
+        this.spawnIndex = spawnIndex;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFromTo(BlockFromToEvent event) {
+        // Растекающаяся вода или лава может затопить найденное место, а источник - исчезнуть.
+        // Сбрасываем только колонны в кэше колонн. Пул и индекс прогрева не трогаем:
+        // жидкости в пещерах текут постоянно, а точку из пула и кандидатов из индекса
+        // поиск все равно перепроверяет по миру
+        invalidateColumn(event.getBlock());
+        invalidateColumn(event.getToBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBucketEmpty(PlayerBucketEmptyEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBucketFill(PlayerBucketFillEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockForm(BlockFormEvent event) {
+        // Снег, лед, обсидиан из лавы и т.п.
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockGrow(BlockGrowEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onStructureGrow(StructureGrowEvent event) {
+        for (BlockState state : event.getBlocks()) {
+            invalidate(state.getBlock());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityChangeBlock(EntityChangeBlockEvent event) {
+        // Падающий песок, эндермены, разрушители и т.п.
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent event) {
+        invalidateMoved(event.getBlock(), event.getBlocks(), event.getDirection());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonRetract(BlockPistonRetractEvent event) {
+        invalidateMoved(event.getBlock(), event.getBlocks(), event.getDirection());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        for (Block block : event.blockList()) {
+            invalidate(block);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        for (Block block : event.blockList()) {
+            invalidate(block);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        int chunkX = event.getChunk().getX();
+        int chunkZ = event.getChunk().getZ();
+        spawnPointPool.invalidateChunk(event.getWorld(), chunkX, chunkZ);
+        columnCache.invalidateChunk(event.getWorld().getUID(), chunkX, chunkZ);
+    }
+
+    /**
+     * Поршень двигает блоки: каждый уходит из своей колонны в соседнюю, а голова
+     * поршня появляется или исчезает рядом с ним. Соседей берем с обеих сторон,
+     * чтобы не зависеть от того, куда указывает направление события
+     */
+    private void invalidateMoved(Block piston, List<Block> blocks, BlockFace direction) {
+        BlockFace opposite = direction.getOppositeFace();
+        invalidate(piston.getRelative(direction));
+        invalidate(piston.getRelative(opposite));
+        for (Block block : blocks) {
+            invalidate(block);
+            invalidate(block.getRelative(direction));
+            invalidate(block.getRelative(opposite));
+        }
+    }
+
+    private void invalidate(Block block) {
+        spawnPointPool.invalidateChunk(block.getWorld(), block.getX() >> 4, block.getZ() >> 4);
+        invalidateColumn(block);
+        spawnIndex.invalidateColumn(block.getWorld().getUID(), block.getX(), block.getZ());
+    }
+
+    /**
+     * Только колонна в кэше колонн (без пула и индекса прогрева)
+     */
+    private void invalidateColumn(Block block) {
+        columnCache.invalidateColumn(block.getWorld().getUID(), block.getX(), block.getZ());
+    }
+}
@@ -0,0 +1,96 @@
+package com.dwarfspawn.spawn;
+
+import org.bukkit.Material;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Прямоугольная сетка блоков в памяти. Позволяет запускать поиск места спавна
+ * без сервера (бенчмарки, проверка алгоритма). Колонны за пределами сетки
+ * считаются недоступными.
+ */
+public class ArrayBlockAccess implements BlockAccess {
+    private final int originX;
+    private final int originZ;
+    private final int sizeX;
+    private final int sizeZ;
+    private final int minY;
+    private final int maxY;
+    private final Material[] blocks;
+    private UUID worldId;
+
+    /**
+     * Создает сетку, заполненную воздухом
+     * @param originX Наименьшая координата X сетки
+     * @param originZ Наименьшая координата Z сетки
+     * @param sizeX Размер сетки по X
+     * @param sizeZ Размер сетки по Z
+     * @param minY Минимальная высота мира (включительно)
+     * @param maxY Максимальная высота мира (не включительно)
+     */
+    public ArrayBlockAccess(int originX, int originZ, int sizeX, int sizeZ, int minY, int maxY) {
+        this.originX = originX;
+        this.originZ = originZ;
+        this.sizeX = sizeX;
+        this.sizeZ = sizeZ;
+        this.minY = minY;
+        this.maxY = maxY;
+        this.blocks = new Material[sizeX * sizeZ * (maxY - minY)];
+        Arrays.fill(blocks, Material.AIR);
+    }
+
+    /**
+     * Задает блок. Блоки за пределами сетки игнорируются.
+     */
+    public void setType(int x, int y, int z, Material material) {
+        if (hasColumn(x, z) && y >= minY && y < maxY) {
+            blocks[index(x, y, z)] = material;
+        }
+    }
+
+    /**
+     * Задает мир для кэша колонн (по умолчанию null - результаты не кэшируются)
+     */
+    public void setWorldId(UUID worldId) {
+        this.worldId = worldId;
+    }
+
+    @Override
+    public int getMinY() {
+        return minY;
+    }
+
+    @Override
+    public int getMaxY() {
+        return maxY;
+    }
+
+    @Override
+    public boolean hasColumn(int x, int z) {
+        return x >= originX && x < originX + sizeX && z >= originZ && z < originZ + sizeZ;
+    }
+
+    @Override
+    public Material getType(int x, int y, int z) {
+        return blocks[index(x, y, z)];
+    }
+
+    @Override
+    public int getHighestBlockY(int x, int z) {
+        int y = maxY - 1;
+        while (y > minY && getType(x, y, z).isAir()) {
+            y--;
+        }
+        return y;
+    }
+
+    @Override
+    public UUID getWorldId() {
+        return worldId;
+    }
+
+    private int index(int x, int y, int z) {
+        return ((y - minY) * sizeZ + (z - originZ)) * sizeX + (x - originX);
+    }
+}
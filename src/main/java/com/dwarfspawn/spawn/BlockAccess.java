@@ -0,0 +1,53 @@
+package com.dwarfspawn.spawn;
+
+import org.bukkit.Material;
+
+import java.util.UUID;
+
+/**
+ * Минимальный доступ к блокам мира, который нужен поиску места спавна.
+ * Координаты - мировые. Реализации: {@link ChunkSnapshotCache} (снимки чанков
+ * настоящего мира) и {@link ArrayBlockAccess} (сетка блоков в памяти).
+ */
+public interface BlockAccess {
+
+    /**
+     * @return Минимальная высота мира (включительно)
+     */
+    int getMinY();
+
+    /**
+     * @return Максимальная высота мира (не включительно)
+     */
+    int getMaxY();
+
+    /**
+     * @return true, если блоки колонны доступны для чтения
+     */
+    boolean hasColumn(int x, int z);
+
+    /**
+     * Возвращает тип блока. Вызывается только для доступных колонн и высот внутри мира.
+     */
+    Material getType(int x, int y, int z);
+
+    /**
+     * Возвращает высоту самого верхнего блока колонны, мешающего движению, или жидкости
+     * (как карта высот MOTION_BLOCKING). Может указывать и на воздух над ним.
+     */
+    int getHighestBlockY(int x, int z);
+
+    /**
+     * @return Мир для кэша колонн или null, если результаты проверки не нужно кэшировать
+     */
+    default UUID getWorldId() {
+        return null;
+    }
+
+    /**
+     * @return Номер изменения кэша колонн, на момент которого сняты блоки (см. ColumnCache#currentStamp)
+     */
+    default long getColumnCacheStamp() {
+        return 0;
+    }
+}
@@ -0,0 +1,284 @@
+package com.dwarfspawn.spawn;
+
+import com.dwarfspawn.ConfigManager;
+import com.dwarfspawn.PluginSettings;
+import com.dwarfspawn.compat.PaperCompat;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Поиск мест спавна с ограничением времени за тик. Все начатые поиски стоят в
+ * общей очереди и по очереди проверяют по одному кандидату, пока не кончится
+ * бюджет тика (search-tick-budget-ms). Незавершенные поиски продолжаются в
+ * следующем тике, поэтому массовые смерти не просаживают TPS.
+ * Все методы вызываются только из главного потока.
+ */
+public class BudgetedSpawnSearch {
+    private final JavaPlugin plugin;
+    private final ConfigManager configManager;
+    private final SpawnSearchEngine engine;
+    private final ColumnCache columnCache;
+    private final SpawnIndex spawnIndex;
+    private final SpawnStats stats;
+    private final Random random = new Random();
+    private final Deque<PendingSearch> queue = new ArrayDeque<>();
+    // Снимки чанков общие для всех поисков в пределах одного тика
+    private final Map<UUID, ChunkSnapshotCache> tickSnapshots = new HashMap<>();
+    private BukkitTask task;
+
+    public BudgetedSpawnSearch(JavaPlugin plugin, ConfigManager configManager, SpawnSearchEngine engine,
+            ColumnCache columnCache, SpawnIndex spawnIndex, SpawnStats stats) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+        this.engine = engine;
+        this.columnCache = columnCache;
+        this.spawnIndex = spawnIndex;
+        this.stats = stats;
+    }
+
+    /**
+     * Запускает обработку очереди поисков (раз в тик)
+     */
+    public void start() {
+        if (task != null) {
+            return;
+        }
+        task = new BukkitRunnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }.runTaskTimer(plugin, 1L, 1L);
+    }
+
+    /**
+     * Останавливает обработку, незавершенные поиски завершаются без результата
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        PendingSearch search;
+        while ((search = queue.pollFirst()) != null) {
+            finish(search, null);
+        }
+        tickSnapshots.clear();
+    }
+
+    /**
+     * Ставит поиск в очередь: случайное место в радиусе от центра (если радиус
+     * включен), а если попытки кончились - колонна самого центра
+     * @param center Центр радиуса спавна (или конкретная точка спавна)
+     * @param world Мир
+     * @return Future, которое завершается в главном потоке найденным местом или null.
+     *         Отмена future убирает поиск из очереди
+     */
+    public CompletableFuture<Location> submit(Location center, World world) {
+        PluginSettings settings = configManager.getSettings();
+        SearchSettings searchSettings = SearchSettings.of(settings);
+        CandidateSampler sampler = searchSettings.newSampler(center.getX(), center.getZ(), random);
+        if (settings.warmupEnabled()) {
+            // Сначала места из индекса прогрева
+            sampler = spawnIndex.prepend(world.getUID(), sampler, random);
+        }
+        sampler = settings.chunkPolicy().filter(sampler, world);
+        PendingSearch search = new PendingSearch(SpawnPoint.of(center), world, searchSettings, sampler,
+                settings.chunkPolicy(), settings.radiusEnabled());
+        queue.addLast(search);
+        return search.future;
+    }
+
+    /**
+     * @return Сколько поисков ждет своей очереди
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    private void tick() {
+        if (queue.isEmpty()) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + (long) (configManager.getSettings().searchTickBudgetMs() * 1_000_000);
+        // Сколько поисков подряд ждали загрузки чанков: если ждут все, до следующего тика делать нечего
+        int waiting = 0;
+        try {
+            while (!queue.isEmpty() && waiting < queue.size() && System.nanoTime() < deadline) {
+                PendingSearch search = queue.pollFirst();
+                if (search.future.isDone()) {
+                    continue; // Поиск отменили, результат больше не нужен
+                }
+                switch (step(search)) {
+                    case DONE -> waiting = 0;
+                    case PROGRESS -> {
+                        // Каждый поиск проверяет по одному кандидату за раз, чтобы
+                        // один неудачный поиск не задерживал остальных
+                        queue.addLast(search);
+                        waiting = 0;
+                    }
+                    case WAITING -> {
+                        queue.addLast(search);
+                        waiting++;
+                    }
+                }
+            }
+        } finally {
+            // Блоки могут измениться до следующего тика
+            tickSnapshots.clear();
+        }
+    }
+
+    /**
+     * Проверяет следующего кандидата поиска
+     */
+    private Step step(PendingSearch search) {
+        try {
+            if (search.candidate == null && !nextCandidate(search)) {
+                finish(search, null);
+                return Step.DONE;
+            }
+
+            int radius = search.checkingCenter ? 0 : SpawnSearchEngine.NEARBY_SEARCH_RADIUS;
+            if (!ensureChunksLoaded(search, radius)) {
+                return Step.WAITING;
+            }
+
+            ChunkSnapshotCache snapshots = tickSnapshots.computeIfAbsent(search.world.getUID(),
+                    worldId -> new ChunkSnapshotCache(search.world, null, columnCache.currentStamp()));
+            SpawnPoint validPoint = search.checkingCenter
+                    ? engine.findInColumn(search.candidate, snapshots, search.settings, search.trace)
+                    : engine.findNear(search.candidate, snapshots, search.settings, search.trace);
+            search.candidate = null;
+
+            if (validPoint != null) {
+                search.trace.setOutcome(!search.checkingCenter ? SpawnStats.Outcome.RANDOM
+                        : search.radiusEnabled ? SpawnStats.Outcome.CENTER_FALLBACK
+                        : SpawnStats.Outcome.FIXED_POINT);
+                finish(search, validPoint.toLocation(search.world));
+                return Step.DONE;
+            }
+            return Step.PROGRESS;
+        } catch (Exception e) {
+            // Если что-то пошло не так, возвращаем null (используется дефолтный спавн)
+            finish(search, null);
+            return Step.DONE;
+        }
+    }
+
+    /**
+     * Выбирает следующего кандидата: сначала случайные точки, потом центр спавна
+     * @return false, если проверять больше нечего
+     */
+    private boolean nextCandidate(PendingSearch search) {
+        if (search.radiusEnabled && search.remainingAttempts > 0) {
+            search.remainingAttempts--;
+            search.candidate = search.sampler.next();
+            return true;
+        }
+        if (!search.checkingCenter) {
+            // Если не удалось найти подходящее место, проверяем базовую точку
+            search.checkingCenter = true;
+            search.candidate = search.center;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Проверяет, что загружены все чанки вокруг кандидата. На Paper незагруженные
+     * чанки запрашиваются асинхронно и поиск ждет их загрузки, на других серверах
+     * загружаются сразу (это время тоже входит в бюджет тика). Чанки, которые
+     * нельзя загружать по spawn-chunk-policy, пропускаются и считаются недоступными.
+     * @return true, если можно проверять кандидата
+     */
+    private boolean ensureChunksLoaded(PendingSearch search, int radius) {
+        if (search.chunkLoad != null) {
+            if (!search.chunkLoad.isDone()) {
+                return false;
+            }
+            search.chunkLoad = null;
+        }
+
+        World world = search.world;
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int chunkX = (search.candidate.blockX() - radius) >> 4;
+                chunkX <= (search.candidate.blockX() + radius) >> 4; chunkX++) {
+            for (int chunkZ = (search.candidate.blockZ() - radius) >> 4;
+                    chunkZ <= (search.candidate.blockZ() + radius) >> 4; chunkZ++) {
+                if (world.isChunkLoaded(chunkX, chunkZ) || !search.chunkPolicy.mayLoad(world, chunkX, chunkZ)) {
+                    continue;
+                }
+                search.trace.chunkLoads(1);
+                if (PaperCompat.hasAsyncChunks()) {
+                    futures.add(world.getChunkAtAsync(chunkX, chunkZ));
+                } else {
+                    world.loadChunk(chunkX, chunkZ);
+                }
+            }
+        }
+
+        if (futures.isEmpty()) {
+            return true;
+        }
+        search.chunkLoad = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        return false;
+    }
+
+    private void finish(PendingSearch search, Location location) {
+        stats.record(search.trace);
+        search.future.complete(location);
+    }
+
+    private enum Step {
+        /** Поиск завершен */
+        DONE,
+        /** Кандидат проверен, поиск продолжится */
+        PROGRESS,
+        /** Поиск ждет загрузки чанков */
+        WAITING
+    }
+
+    /**
+     * Состояние одного незавершенного поиска
+     */
+    private static class PendingSearch {
+        private final SpawnPoint center;
+        private final World world;
+        private final SearchSettings settings;
+        private final CandidateSampler sampler;
+        private final ChunkPolicy chunkPolicy;
+        private final boolean radiusEnabled;
+        private final SearchTrace trace = new SearchTrace();
+        private final CompletableFuture<Location> future = new CompletableFuture<>();
+        private int remainingAttempts;
+        private boolean checkingCenter;
+        private SpawnPoint candidate;
+        private CompletableFuture<Void> chunkLoad;
+
+        private PendingSearch(SpawnPoint center, World world, SearchSettings settings, CandidateSampler sampler,
+                ChunkPolicy chunkPolicy, boolean radiusEnabled) {
+            this.center = center;
+            this.world = world;
+            this.settings = settings;
+            this.sampler = sampler;
+            this.chunkPolicy = chunkPolicy;
+            this.radiusEnabled = radiusEnabled;
+            this.remainingAttempts = settings.maxSpawnAttempts();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.dwarfspawn.spawn;
+
+/**
+ * Источник случайных кандидатов одного поиска. Создается на каждый поиск
+ * (см. {@link SpawnSampling#newSampler}), поэтому может помнить уже выданные точки.
+ */
+@FunctionalInterface
+public interface CandidateSampler {
+
+    /**
+     * @return Следующий кандидат (высота - с нее начинается спуск при проверке колонны)
+     */
+    SpawnPoint next();
+}
@@ -0,0 +1,85 @@
+package com.dwarfspawn.spawn;
+
+import org.bukkit.World;
+
+import java.util.Locale;
+
+/**
+ * Какие чанки поиск места спавна может использовать. Позволяет не запускать
+ * генерацию мира из-за смерти игрока при большом радиусе спавна.
+ * Методы с World вызываются только в главном потоке.
+ */
+public enum ChunkPolicy {
+    /** Любые чанки, недостающие загружаются и при необходимости генерируются (как раньше) */
+    ANY,
+    /** Кандидаты выбираются в уже сгенерированных чанках, а если таких не нашлось - где угодно */
+    PREFER_GENERATED,
+    /** Только уже сгенерированные чанки, генерация мира не запускается никогда */
+    GENERATED_ONLY,
+    /** Только уже загруженные чанки, поиск ничего не загружает */
+    LOADED_ONLY;
+
+    // Сколько раз перевыбираем кандидата, пока он не попадет в подходящий чанк
+    private static final int CANDIDATE_RETRIES = 16;
+
+    /**
+     * @return true, если кандидат в этом чанке подходит без загрузки незнакомых чанков
+     */
+    public boolean isPreferred(World world, int chunkX, int chunkZ) {
+        if (world.isChunkLoaded(chunkX, chunkZ)) {
+            return true;
+        }
+        return switch (this) {
+            case ANY -> true;
+            case PREFER_GENERATED, GENERATED_ONLY -> world.isChunkGenerated(chunkX, chunkZ);
+            case LOADED_ONLY -> false;
+        };
+    }
+
+    /**
+     * Вызывается для незагруженного чанка
+     * @return true, если поиск может загрузить этот чанк
+     */
+    public boolean mayLoad(World world, int chunkX, int chunkZ) {
+        return switch (this) {
+            case ANY, PREFER_GENERATED -> true;
+            // Чанк уже сгенерирован, поэтому загрузка не запустит генерацию
+            case GENERATED_ONLY -> world.isChunkGenerated(chunkX, chunkZ);
+            case LOADED_ONLY -> false;
+        };
+    }
+
+    /**
+     * Оборачивает источник кандидатов так, чтобы кандидаты по возможности
+     * попадали в подходящие чанки. Если за несколько попыток подходящий чанк
+     * не нашелся, возвращается последний кандидат: при строгих режимах его
+     * колонна просто окажется недоступной и проверка ничего не загрузит.
+     */
+    public CandidateSampler filter(CandidateSampler sampler, World world) {
+        if (this == ANY) {
+            return sampler;
+        }
+        return () -> {
+            SpawnPoint candidate = sampler.next();
+            for (int retry = 0; retry < CANDIDATE_RETRIES
+                    && !isPreferred(world, candidate.blockX() >> 4, candidate.blockZ() >> 4); retry++) {
+                candidate = sampler.next();
+            }
+            return candidate;
+        };
+    }
+
+    /**
+     * @return Режим по имени (без учета регистра) или null, если такого режима нет
+     */
+    public static ChunkPolicy parse(String name) {
+        if (name == null) {
+            return null;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.dwarfspawn.spawn;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+import java.util.UUID;
+
+/**
+ * Снимки чанков, снятые в рамках одного поиска места спавна.
+ * Пока кэш не заморожен, недостающие снимки снимаются с мира (только в главном
+ * потоке). После freeze() кэш только читается и его можно передать в другой поток.
+ * Колонны незагруженных (и не загрузившихся) чанков считаются недоступными.
+ * Чтение блока не создает объектов: снимки лежат в таблице с ключами long,
+ * а последний прочитанный чанк запоминается (соседние блоки почти всегда в нем).
+ */
+public class ChunkSnapshotCache implements BlockAccess {
+    private final World world;
+    private final UUID worldId;
+    private final ChunkPolicy loadPolicy;
+    private final long columnCacheStamp;
+    private final int worldMinY;
+    private final int worldMaxY;
+    // Открытая адресация: ключ чанка -> снимок (null - пустая ячейка)
+    private long[] keys = new long[16];
+    private ChunkSnapshot[] values = new ChunkSnapshot[16];
+    private int size;
+    // Последний прочитанный чанк. Неизменяемый объект, поэтому после freeze() его
+    // могут без блокировок подменять разные потоки
+    private LastChunk lastChunk;
+    private boolean frozen;
+    private int chunkLoads;
+
+    /**
+     * @param world Мир
+     * @param loadPolicy Какие незагруженные чанки можно синхронно загружать,
+     *                   null - ничего не загружать и считать такие чанки недоступными
+     * @param columnCacheStamp Номер изменения кэша колонн на момент создания (см. ColumnCache#currentStamp)
+     */
+    public ChunkSnapshotCache(World world, ChunkPolicy loadPolicy, long columnCacheStamp) {
+        this.world = world;
+        this.worldId = world.getUID();
+        this.loadPolicy = loadPolicy;
+        this.columnCacheStamp = columnCacheStamp;
+        this.worldMinY = world.getMinHeight();
+        this.worldMaxY = world.getMaxHeight();
+    }
+
+    /**
+     * Снимает снимки всех загруженных чанков в квадрате вокруг точки.
+     * Вызывается только в главном потоке.
+     */
+    public void captureArea(int x, int z, int radius) {
+        for (int chunkX = (x - radius) >> 4; chunkX <= (x + radius) >> 4; chunkX++) {
+            for (int chunkZ = (z - radius) >> 4; chunkZ <= (z + radius) >> 4; chunkZ++) {
+                get(chunkX, chunkZ);
+            }
+        }
+    }
+
+    /**
+     * Запрещает дальнейшие обращения к миру, после этого кэш можно читать из любого потока
+     */
+    public ChunkSnapshotCache freeze() {
+        frozen = true;
+        return this;
+    }
+
+    /**
+     * @return Снимок чанка или null, если чанк недоступен
+     */
+    public ChunkSnapshot get(int chunkX, int chunkZ) {
+        long key = ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+        LastChunk last = lastChunk;
+        if (last != null && last.key() == key) {
+            return last.snapshot();
+        }
+
+        ChunkSnapshot snapshot = lookup(key);
+        if (snapshot != null) {
+            lastChunk = new LastChunk(key, snapshot);
+            return snapshot;
+        }
+        if (frozen) {
+            return null;
+        }
+
+        if (!world.isChunkLoaded(chunkX, chunkZ)) {
+            if (loadPolicy == null || !loadPolicy.mayLoad(world, chunkX, chunkZ)) {
+                return null;
+            }
+            // Чанк не загружен, пытаемся загрузить его
+            world.loadChunk(chunkX, chunkZ);
+            chunkLoads++;
+            // Если все еще не загружен, считаем чанк недоступным
+            if (!world.isChunkLoaded(chunkX, chunkZ)) {
+                return null;
+            }
+        }
+
+        // Карта высот нужна для быстрой проверки крыши над игроком
+        snapshot = world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(true, false, false);
+        store(key, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * @return Сколько чанков было синхронно загружено для этого поиска
+     */
+    public int getChunkLoads() {
+        return chunkLoads;
+    }
+
+    private ChunkSnapshot lookup(long key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return null;
+    }
+
+    private void store(long key, ChunkSnapshot snapshot) {
+        // Держим таблицу заполненной не больше чем наполовину
+        if ((size + 1) * 2 > keys.length) {
+            long[] oldKeys = keys;
+            ChunkSnapshot[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new ChunkSnapshot[oldValues.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    store(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (values[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = snapshot;
+        size++;
+    }
+
+    private static int slot(long key, int mask) {
+        int hash = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    @Override
+    public UUID getWorldId() {
+        return worldId;
+    }
+
+    @Override
+    public long getColumnCacheStamp() {
+        return columnCacheStamp;
+    }
+
+    @Override
+    public int getMinY() {
+        return worldMinY;
+    }
+
+    @Override
+    public int getMaxY() {
+        return worldMaxY;
+    }
+
+    @Override
+    public boolean hasColumn(int x, int z) {
+        return get(x >> 4, z >> 4) != null;
+    }
+
+    @Override
+    public Material getType(int x, int y, int z) {
+        return get(x >> 4, z >> 4).getBlockType(x & 15, y, z & 15);
+    }
+
+    @Override
+    public int getHighestBlockY(int x, int z) {
+        return get(x >> 4, z >> 4).getHighestBlockYAt(x & 15, z & 15);
+    }
+
+    private record LastChunk(long key, ChunkSnapshot snapshot) {
+    }
+}
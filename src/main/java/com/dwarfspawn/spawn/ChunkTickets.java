@@ -0,0 +1,79 @@
+package com.dwarfspawn.spawn;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Общий счетчик plugin chunk ticket'ов плагина. У плагина на чанк всего один
+ * тикет: повторное добавление ничего не меняет, а одно удаление снимает его
+ * для всех. Поэтому все, кто держит чанки загруженными (пул точек, места,
+ * найденные заранее), берут их через этот счетчик, и тикет снимается, только
+ * когда чанк больше никому не нужен.
+ * Все методы вызываются только из главного потока.
+ */
+public class ChunkTickets {
+    private final JavaPlugin plugin;
+    // UUID мира -> ключ чанка -> сколько раз чанк взят
+    private final Map<UUID, Map<Long, Integer>> counts = new HashMap<>();
+
+    public ChunkTickets(JavaPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Берет чанк точки: первый взявший ставит тикет
+     */
+    public void acquire(Location location) {
+        World world = location.getWorld();
+        if (world != null) {
+            acquire(world, location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        }
+    }
+
+    /**
+     * Отпускает чанк точки: последний отпустивший снимает тикет
+     */
+    public void release(Location location) {
+        World world = location.getWorld();
+        if (world != null) {
+            release(world, location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        }
+    }
+
+    public void acquire(World world, int chunkX, int chunkZ) {
+        Map<Long, Integer> worldCounts = counts.computeIfAbsent(world.getUID(), id -> new HashMap<>());
+        if (worldCounts.merge(chunkKey(chunkX, chunkZ), 1, Integer::sum) == 1) {
+            world.addPluginChunkTicket(chunkX, chunkZ, plugin);
+        }
+    }
+
+    public void release(World world, int chunkX, int chunkZ) {
+        Map<Long, Integer> worldCounts = counts.get(world.getUID());
+        if (worldCounts == null) {
+            return;
+        }
+        long key = chunkKey(chunkX, chunkZ);
+        Integer count = worldCounts.get(key);
+        if (count == null) {
+            return; // Чанк не брали
+        }
+        if (count > 1) {
+            worldCounts.put(key, count - 1);
+            return;
+        }
+        worldCounts.remove(key);
+        if (worldCounts.isEmpty()) {
+            counts.remove(world.getUID());
+        }
+        world.removePluginChunkTicket(chunkX, chunkZ, plugin);
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+}
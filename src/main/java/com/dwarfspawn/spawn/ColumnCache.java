@@ -0,0 +1,345 @@
+package com.dwarfspawn.spawn;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограниченный кэш результатов проверки колонн: для каждой колонны (мир, x, z)
+ * хранится список высот, подходящих для спавна (по убыванию).
+ * Кэш хранится по чанкам, самые давно использованные чанки вытесняются.
+ * Может использоваться из любого потока. Чанки разложены по нескольким сегментам
+ * со своими блокировками, поэтому параллельные поиски (parallel-search-threads)
+ * почти не ждут друг друга; вытеснение идет внутри сегмента.
+ * Чанки лежат в таблицах с ключами long (как в {@link ChunkSnapshotCache}),
+ * поэтому чтение из кэша не создает объектов.
+ */
+public class ColumnCache {
+    // Количество сегментов (степень двойки)
+    private static final int SEGMENTS = 16;
+    // Сколько последних изменений чанков помнит каждый сегмент
+    private static final int RECENT_INVALIDATIONS = 4096 / SEGMENTS;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    // Номер последнего изменения блоков (общий для всех сегментов)
+    private final AtomicLong stamp = new AtomicLong();
+
+    public ColumnCache(int maxChunks) {
+        int perSegment = segmentCapacity(maxChunks);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * Возвращает номер последнего изменения. Его нужно запомнить перед снятием снимков,
+     * чтобы потом не положить в кэш результат, устаревший из-за изменения блоков.
+     */
+    public long currentStamp() {
+        return stamp.get();
+    }
+
+    /**
+     * @return Подходящие высоты колонны (по убыванию) или null, если колонна не в кэше
+     */
+    public int[] get(UUID worldId, int x, int z) {
+        long key = chunkKey(x >> 4, z >> 4);
+        int hash = hash(worldId, key);
+        Segment segment = segments[hash >>> 28];
+        synchronized (segment) {
+            int[][] columns = segment.chunks.get(worldId, key, hash);
+            return columns == null ? null : columns[columnIndex(x, z)];
+        }
+    }
+
+    /**
+     * Сохраняет результат проверки колонны
+     * @param capturedAt Номер изменения на момент снятия снимка, по которому проверялась колонна
+     */
+    public void put(UUID worldId, int x, int z, int[] spawnYs, long capturedAt) {
+        long key = chunkKey(x >> 4, z >> 4);
+        int hash = hash(worldId, key);
+        Segment segment = segments[hash >>> 28];
+        synchronized (segment) {
+            if (segment.maxChunks <= 0) {
+                return;
+            }
+
+            // Если чанк менялся после снятия снимка, результат уже может быть неверным
+            Long invalidatedAt = segment.invalidations.get(worldId, key, hash);
+            if (invalidatedAt != null ? invalidatedAt > capturedAt : segment.forgottenStamp > capturedAt) {
+                return;
+            }
+
+            int[][] columns = segment.chunks.get(worldId, key, hash);
+            if (columns == null) {
+                columns = new int[256][];
+                segment.chunks.put(worldId, key, hash, columns);
+                // Вытесняем самые давно использованные чанки
+                while (segment.chunks.size() > segment.maxChunks) {
+                    segment.chunks.removeEldest();
+                }
+            }
+            columns[columnIndex(x, z)] = spawnYs;
+        }
+    }
+
+    /**
+     * Удаляет колонну из кэша (в ней изменился блок)
+     */
+    public void invalidateColumn(UUID worldId, int x, int z) {
+        long key = chunkKey(x >> 4, z >> 4);
+        int hash = hash(worldId, key);
+        Segment segment = segments[hash >>> 28];
+        synchronized (segment) {
+            // Номер берем под блокировкой сегмента: put того же чанка увидит его
+            // вместе с записью в invalidations
+            long invalidatedAt = stamp.incrementAndGet();
+            // put переставляет запись в конец, поэтому вытесняются самые старые изменения
+            segment.invalidations.put(worldId, key, hash, invalidatedAt);
+            if (segment.invalidations.size() > RECENT_INVALIDATIONS) {
+                segment.forgottenStamp = segment.invalidations.removeEldest();
+            }
+
+            int[][] columns = segment.chunks.get(worldId, key, hash);
+            if (columns != null) {
+                columns[columnIndex(x, z)] = null;
+            }
+        }
+    }
+
+    /**
+     * Удаляет из кэша все колонны чанка (чанк выгружен)
+     */
+    public void invalidateChunk(UUID worldId, int chunkX, int chunkZ) {
+        long key = chunkKey(chunkX, chunkZ);
+        int hash = hash(worldId, key);
+        Segment segment = segments[hash >>> 28];
+        synchronized (segment) {
+            segment.chunks.remove(worldId, key, hash);
+        }
+    }
+
+    /**
+     * Очищает кэш и задает новый размер (например, после перезагрузки конфигурации)
+     */
+    public void reset(int maxChunks) {
+        int perSegment = segmentCapacity(maxChunks);
+        // Результаты поисков, начатых до сброса, в кэш уже не попадут
+        long resetAt = stamp.incrementAndGet();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.maxChunks = perSegment;
+                segment.chunks.clear();
+                segment.invalidations.clear();
+                segment.forgottenStamp = resetAt;
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.chunks.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Делит размер кэша между сегментами (с округлением вверх, 0 - кэш отключен)
+     */
+    private static int segmentCapacity(int maxChunks) {
+        return maxChunks <= 0 ? 0 : (maxChunks + SEGMENTS - 1) / SEGMENTS;
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Хэш чанка: старшие 4 бита выбирают сегмент, младшие - ячейку таблицы сегмента
+     */
+    private static int hash(UUID worldId, long key) {
+        long h = (key ^ worldId.getLeastSignificantBits()) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int columnIndex(int x, int z) {
+        return (x & 15) << 4 | (z & 15);
+    }
+
+    /**
+     * Часть кэша со своей блокировкой (сам объект сегмента)
+     */
+    private static final class Segment {
+        // Чанк -> колонны; get переставляет чанк в конец, вытесняется начало
+        private final ChunkMap<int[][]> chunks = new ChunkMap<>(true);
+        // Чанк -> номер его последнего изменения (в порядке изменений)
+        private final ChunkMap<Long> invalidations = new ChunkMap<>(false);
+        private int maxChunks;
+        // Номер самого нового изменения, которое уже вытеснено из invalidations
+        private long forgottenStamp;
+
+        private Segment(int maxChunks) {
+            this.maxChunks = maxChunks;
+        }
+    }
+
+    /**
+     * Таблица чанков с ключом (мир, long) и списком записей от самой старой к самой
+     * новой. Поиск по ключу не создает объектов. Не потокобезопасна - защищается
+     * блокировкой сегмента.
+     */
+    private static final class ChunkMap<V> {
+        private final boolean accessOrder;
+        // Голова кольцевого списка: after - самая старая запись, before - самая новая
+        private final Node<V> head = new Node<>(null, 0, 0, null);
+        private Node<V>[] table = newTable(16);
+        private int size;
+
+        private ChunkMap(boolean accessOrder) {
+            this.accessOrder = accessOrder;
+            head.before = head;
+            head.after = head;
+        }
+
+        private V get(UUID worldId, long key, int hash) {
+            Node<V> node = find(worldId, key, hash);
+            if (node == null) {
+                return null;
+            }
+            if (accessOrder) {
+                moveToEnd(node);
+            }
+            return node.value;
+        }
+
+        /**
+         * Добавляет или заменяет запись и делает ее самой новой
+         */
+        private void put(UUID worldId, long key, int hash, V value) {
+            Node<V> node = find(worldId, key, hash);
+            if (node != null) {
+                node.value = value;
+                moveToEnd(node);
+                return;
+            }
+
+            int index = hash & (table.length - 1);
+            node = new Node<>(worldId, key, hash, value);
+            node.next = table[index];
+            table[index] = node;
+            linkLast(node);
+            if (++size > table.length * 3 / 4) {
+                resize();
+            }
+        }
+
+        private void remove(UUID worldId, long key, int hash) {
+            Node<V> node = find(worldId, key, hash);
+            if (node != null) {
+                unlink(node);
+            }
+        }
+
+        /**
+         * Удаляет самую старую запись
+         * @return Ее значение или null, если таблица пуста
+         */
+        private V removeEldest() {
+            Node<V> eldest = head.after;
+            if (eldest == head) {
+                return null;
+            }
+            unlink(eldest);
+            return eldest.value;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private void clear() {
+            table = newTable(16);
+            size = 0;
+            head.before = head;
+            head.after = head;
+        }
+
+        private Node<V> find(UUID worldId, long key, int hash) {
+            for (Node<V> node = table[hash & (table.length - 1)]; node != null; node = node.next) {
+                if (node.key == key && node.worldId.equals(worldId)) {
+                    return node;
+                }
+            }
+            return null;
+        }
+
+        private void unlink(Node<V> node) {
+            int index = node.hash & (table.length - 1);
+            if (table[index] == node) {
+                table[index] = node.next;
+            } else {
+                Node<V> previous = table[index];
+                while (previous.next != node) {
+                    previous = previous.next;
+                }
+                previous.next = node.next;
+            }
+            node.before.after = node.after;
+            node.after.before = node.before;
+            size--;
+        }
+
+        private void moveToEnd(Node<V> node) {
+            if (head.before == node) {
+                return;
+            }
+            node.before.after = node.after;
+            node.after.before = node.before;
+            linkLast(node);
+        }
+
+        private void linkLast(Node<V> node) {
+            node.before = head.before;
+            node.after = head;
+            head.before.after = node;
+            head.before = node;
+        }
+
+        private void resize() {
+            Node<V>[] newTable = newTable(table.length * 2);
+            for (Node<V> node = head.after; node != head; node = node.after) {
+                int index = node.hash & (newTable.length - 1);
+                node.next = newTable[index];
+                newTable[index] = node;
+            }
+            table = newTable;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Node<V>[] newTable(int capacity) {
+            return (Node<V>[]) new Node[capacity];
+        }
+    }
+
+    private static final class Node<V> {
+        private final UUID worldId;
+        private final long key;
+        private final int hash;
+        private V value;
+        // Следующая запись в той же ячейке таблицы
+        private Node<V> next;
+        // Соседи в порядке от старых к новым
+        private Node<V> before;
+        private Node<V> after;
+
+        private Node(UUID worldId, long key, int hash, V value) {
+            this.worldId = worldId;
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+}
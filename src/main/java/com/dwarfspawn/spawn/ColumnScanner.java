@@ -0,0 +1,179 @@
+package com.dwarfspawn.spawn;
+
+import org.bukkit.Material;
+
+import java.util.Arrays;
+
+/**
+ * Проверка колонны блоков на пригодность для спавна.
+ * Читает блоки только через {@link BlockAccess}, поэтому по снимкам чанков
+ * может выполняться вне главного потока.
+ * Проверка работает только с int-координатами и не создает объектов на каждый
+ * блок: findSpawnY не выделяет память совсем, findSpawnYs - только массив результата,
+ * если в колонне больше одной подходящей высоты.
+ * Какие блоки подходят, решают таблицы {@link SafetyRules}.
+ */
+public final class ColumnScanner {
+    /** Значение, которое возвращается, если в колонне нет подходящего места */
+    public static final int NO_SPAWN = Integer.MIN_VALUE;
+
+    private static final int[] NO_SPAWN_YS = new int[0];
+    // Готовые результаты из одной высоты для высот обычного мира (-64..319): это самый
+    // частый непустой результат findSpawnYs, и при промахе кэша колонн он не копируется
+    private static final int SHARED_MIN_Y = -64;
+    private static final int[][] SINGLE_SPAWN_YS = new int[384][];
+
+    static {
+        for (int i = 0; i < SINGLE_SPAWN_YS.length; i++) {
+            SINGLE_SPAWN_YS[i] = new int[] {SHARED_MIN_Y + i};
+        }
+    }
+    // Буфер найденных высот для findSpawnYs, свой у каждого потока
+    private static final ThreadLocal<int[]> SPAWN_Y_BUFFER = ThreadLocal.withInitial(() -> new int[384]);
+
+    private ColumnScanner() {
+    }
+
+    /**
+     * Ищет безопасное место в колонне, спускаясь от startY до minY
+     * @param blocks Блоки мира (колонна должна быть доступна)
+     * @param x Координата X колонны
+     * @param z Координата Z колонны
+     * @param startY Высота, с которой начинается поиск
+     * @param minY Минимальная высота спавна
+     * @param rules Правила подходящих блоков
+     * @param checkBlockAbove Требовать блок над головой (защита от солнца)
+     * @return Высота для ног игрока или NO_SPAWN
+     */
+    public static int findSpawnY(BlockAccess blocks, int x, int z, int startY, int minY, SafetyRules rules,
+            boolean checkBlockAbove) {
+        return scan(blocks, x, z, startY, minY, rules, checkBlockAbove, null);
+    }
+
+    /**
+     * Находит все подходящие для спавна высоты колонны от startY до minY.
+     * Параметры такие же, как у {@link #findSpawnY}.
+     * @return Высоты для ног игрока по убыванию (пустой массив, если мест нет).
+     *         Массив может быть общим, изменять его нельзя
+     */
+    public static int[] findSpawnYs(BlockAccess blocks, int x, int z, int startY, int minY, SafetyRules rules,
+            boolean checkBlockAbove) {
+        int[] buffer = SPAWN_Y_BUFFER.get();
+        if (buffer.length < startY - minY + 1) {
+            buffer = new int[startY - minY + 1];
+            SPAWN_Y_BUFFER.set(buffer);
+        }
+        int count = scan(blocks, x, z, startY, minY, rules, checkBlockAbove, buffer);
+        if (count == 0) {
+            return NO_SPAWN_YS;
+        }
+        if (count == 1 && buffer[0] - SHARED_MIN_Y >= 0 && buffer[0] - SHARED_MIN_Y < SINGLE_SPAWN_YS.length) {
+            return SINGLE_SPAWN_YS[buffer[0] - SHARED_MIN_Y];
+        }
+        return Arrays.copyOf(buffer, count);
+    }
+
+    /**
+     * Быстрая проверка одной высоты: пол, ноги и голова (и блок над головой, если нужна
+     * крыша). Саму крышу не ищет. Нужна, чтобы не доверять кэшу колонн вслепую: блоки
+     * меняются и без событий, которые чистят кэш
+     * @param y Высота ног игрока
+     * @return true, если на этой высоте по-прежнему можно стоять
+     */
+    public static boolean isStillSpawnable(BlockAccess blocks, int x, int y, int z, SafetyRules rules,
+            boolean checkBlockAbove) {
+        return rules.isFloor(typeAt(blocks, x, y - 1, z))
+                && rules.isBody(typeAt(blocks, x, y, z))
+                && rules.isHead(typeAt(blocks, x, y + 1, z))
+                && (!checkBlockAbove || rules.isHead(typeAt(blocks, x, y + 2, z)));
+    }
+
+    /**
+     * Общий цикл проверки колонны
+     * @param spawnYs Буфер для всех найденных высот (хватает на startY - minY + 1 значений)
+     *                или null, если нужна только первая
+     * @return Количество найденных высот или, если spawnYs == null, первая высота (или NO_SPAWN)
+     */
+    private static int scan(BlockAccess blocks, int x, int z, int startY, int minY, SafetyRules rules,
+            boolean checkBlockAbove, int[] spawnYs) {
+        int count = 0;
+
+        // Высота самого верхнего блока, защищающего от солнца. Считается один раз на колонну
+        // и только если до проверки крыши дошло дело
+        int roofY = NO_SPAWN;
+        boolean roofComputed = false;
+
+        // Ищем подходящее место, начиная с максимальной высоты и спускаясь вниз
+        // Это гарантирует, что мы найдем место под землей, а не на поверхности
+        for (int y = startY; y >= minY; y--) {
+            // Проверяем, что на блоке под ногами можно стоять
+            if (!rules.isFloor(typeAt(blocks, x, y - 1, z))) {
+                continue;
+            }
+
+            // Проверяем, что место для спавна свободно и не под водой или лавой
+            if (!rules.isBody(typeAt(blocks, x, y, z))) {
+                continue;
+            }
+
+            // Проверяем блок над головой (на высоте +1) - должен быть свободен для головы
+            if (!rules.isHead(typeAt(blocks, x, y + 1, z))) {
+                continue;
+            }
+
+            // ВАЖНО: Проверяем наличие блока выше для защиты от солнца
+            if (checkBlockAbove) {
+                // Проверяем, что на высоте +2 тоже есть место (для полного роста игрока)
+                if (!rules.isHead(typeAt(blocks, x, y + 2, z))) {
+                    continue;
+                }
+
+                if (!roofComputed) {
+                    roofY = findHighestRoofY(blocks, x, z, minY + 2, rules);
+                    roofComputed = true;
+                }
+                // Крыша над игроком есть, если самый верхний защищающий блок не ниже y + 2
+                if (roofY == NO_SPAWN || roofY < y + 2) {
+                    continue; // Над игроком нет блока (открытое небо), пропускаем
+                }
+            }
+
+            // Нашли подходящее место! (под землей, с блоком над головой)
+            if (spawnYs == null) {
+                return y;
+            }
+            spawnYs[count++] = y;
+        }
+
+        return spawnYs == null ? NO_SPAWN : count;
+    }
+
+    /**
+     * Ищет самый верхний блок колонны, который защищает от солнца (по правилам крыши,
+     * по умолчанию - не воздух, не вода, не лава). Спуск начинается с высоты из карты высот, поэтому обычно
+     * хватает одной проверки; дальше вниз идем только под водой или лавой.
+     * @param stopY Ниже этой высоты крыша уже не нужна
+     * @return Высота блока или NO_SPAWN, если такого блока нет не ниже stopY
+     */
+    private static int findHighestRoofY(BlockAccess blocks, int x, int z, int stopY, SafetyRules rules) {
+        // Карта высот учитывает блоки, мешающие движению, и жидкости. Берем на один блок
+        // выше, чтобы не зависеть от того, указывает ли она на блок или на воздух над ним
+        int topY = Math.min(blocks.getHighestBlockY(x, z) + 1, blocks.getMaxY() - 1);
+        for (int checkY = topY; checkY >= stopY; checkY--) {
+            if (rules.isRoof(typeAt(blocks, x, checkY, z))) {
+                return checkY;
+            }
+        }
+        return NO_SPAWN;
+    }
+
+    /**
+     * Возвращает тип блока, считая все за пределами мира пустотой (как World#getBlockAt)
+     */
+    private static Material typeAt(BlockAccess blocks, int x, int y, int z) {
+        if (y < blocks.getMinY() || y >= blocks.getMaxY()) {
+            return Material.VOID_AIR;
+        }
+        return blocks.getType(x, y, z);
+    }
+}
@@ -0,0 +1,97 @@
+package com.dwarfspawn.spawn;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Параллельная проверка кандидатов одного поиска по уже снятым снимкам чанков.
+ * Кандидаты независимы, поэтому каждый проверяется отдельной задачей в общем
+ * пуле с ограниченным числом потоков. Первое найденное место побеждает, остальные
+ * задачи прекращают проверку перед следующей колонной.
+ * У каждой задачи свои счетчики, они складываются в счетчики поиска, когда все
+ * задачи завершились. Может использоваться из любого потока.
+ */
+public class ParallelCandidateEvaluator {
+    private final SpawnSearchEngine engine;
+    private ForkJoinPool pool;
+
+    public ParallelCandidateEvaluator(SpawnSearchEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Проверяет кандидатов параллельно
+     * @param blocks Замороженные снимки (читаются из нескольких потоков)
+     * @param parallelism Количество потоков пула
+     * @param trace Счетчики поиска, в них добавляются счетчики всех задач
+     * @return Future с местом, найденным первым, или null. Завершается в потоке пула
+     *         после окончания всех задач, поэтому trace к этому моменту уже заполнен
+     */
+    public CompletableFuture<SpawnPoint> findFirstValid(List<SpawnPoint> candidates, BlockAccess blocks,
+            SearchSettings settings, int parallelism, SearchTrace trace) {
+        ForkJoinPool pool = getPool(parallelism);
+        AtomicBoolean found = new AtomicBoolean();
+        AtomicReference<SpawnPoint> winner = new AtomicReference<>();
+        SearchTrace[] traces = new SearchTrace[candidates.size()];
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[candidates.size()];
+
+        for (int i = 0; i < tasks.length; i++) {
+            SpawnPoint candidate = candidates.get(i);
+            SearchTrace taskTrace = new SearchTrace();
+            traces[i] = taskTrace;
+            tasks[i] = CompletableFuture.runAsync(() -> {
+                // Задача могла дождаться очереди уже после того, как место нашлось
+                if (found.get()) {
+                    return;
+                }
+                SpawnPoint validPoint = engine.findNear(candidate, blocks, settings, taskTrace, found::get);
+                if (validPoint != null && found.compareAndSet(false, true)) {
+                    winner.set(validPoint);
+                }
+            }, pool);
+        }
+
+        return CompletableFuture.allOf(tasks).handle((ignored, error) -> {
+            // Все задачи завершены, их счетчики больше никто не меняет
+            for (SearchTrace taskTrace : traces) {
+                trace.merge(taskTrace);
+            }
+            if (error != null) {
+                throw new CompletionException(error);
+            }
+            return winner.get();
+        });
+    }
+
+    /**
+     * Останавливает пул (при выключении плагина), уже начатые задачи доработают
+     */
+    public synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * @return Пул с нужным числом потоков (пересоздается, если число изменилось в конфиге)
+     */
+    private synchronized ForkJoinPool getPool(int parallelism) {
+        if (pool == null || pool.getParallelism() != parallelism) {
+            if (pool != null) {
+                pool.shutdown();
+            }
+            pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                thread.setName("DwarfSpawn-search-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+        }
+        return pool;
+    }
+}
@@ -0,0 +1,160 @@
+package com.dwarfspawn.spawn;
+
+import org.bukkit.Material;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Правила, какие блоки подходят для места спавна: пол под ногами, блок ног,
+ * блоки головы (и над ней, если нужна крыша) и крыша от солнца.
+ * Правила собираются один раз при загрузке конфигурации в таблицы по
+ * {@link Material#ordinal()}, поэтому проверка колонны - это только чтение массива.
+ * Объект неизменяемый и может читаться из любого потока.
+ */
+public final class SafetyRules {
+    // Жидкости и подводные растения: в них нельзя спавнить и они не защищают от солнца
+    private static final Set<Material> LIQUIDS = EnumSet.of(
+            Material.WATER,
+            Material.LAVA,
+            Material.KELP,
+            Material.KELP_PLANT,
+            Material.SEAGRASS,
+            Material.TALL_SEAGRASS,
+            Material.BUBBLE_COLUMN);
+
+    /** Правила без настроек из конфига (как раньше) */
+    public static final SafetyRules DEFAULT = compile(Rule.NONE, Rule.NONE, Rule.NONE, Rule.NONE);
+
+    private final boolean[] floor;
+    private final boolean[] body;
+    private final boolean[] head;
+    private final boolean[] roof;
+    // Названия из конфига, которые не удалось распознать (для предупреждения в лог)
+    private final List<String> unknownMaterials;
+
+    private SafetyRules(boolean[] floor, boolean[] body, boolean[] head, boolean[] roof,
+            List<String> unknownMaterials) {
+        this.floor = floor;
+        this.body = body;
+        this.head = head;
+        this.roof = roof;
+        this.unknownMaterials = unknownMaterials;
+    }
+
+    /**
+     * Настройка одной группы блоков: что добавить к стандартному правилу и что убрать из него
+     * @param allow Названия материалов, которые разрешены всегда
+     * @param deny Названия материалов, которые запрещены всегда (сильнее allow)
+     */
+    public record Rule(List<String> allow, List<String> deny) {
+        public static final Rule NONE = new Rule(List.of(), List.of());
+    }
+
+    /**
+     * Собирает таблицы правил. Стандартные правила:
+     * пол - твердый блок; ноги и голова - воздух или нетвердый блок, но не жидкость;
+     * крыша - любой блок, кроме воздуха и жидкости.
+     */
+    public static SafetyRules compile(Rule floorRule, Rule bodyRule, Rule headRule, Rule roofRule) {
+        List<String> unknown = new ArrayList<>();
+        Predicate<Material> passable = material -> (material.isAir() || !material.isSolid())
+                && !LIQUIDS.contains(material);
+        return new SafetyRules(
+                buildTable(Material::isSolid, floorRule, unknown),
+                buildTable(passable, bodyRule, unknown),
+                buildTable(passable, headRule, unknown),
+                buildTable(material -> !material.isAir() && !LIQUIDS.contains(material), roofRule, unknown),
+                Collections.unmodifiableList(unknown));
+    }
+
+    private static boolean[] buildTable(Predicate<Material> base, Rule rule, List<String> unknown) {
+        Material[] materials = Material.values();
+        boolean[] table = new boolean[materials.length];
+        for (Material material : materials) {
+            // Устаревшие материалы в мире не встречаются
+            if (!material.isLegacy() && material.isBlock()) {
+                table[material.ordinal()] = base.test(material);
+            }
+        }
+        apply(table, rule.allow(), true, unknown);
+        apply(table, rule.deny(), false, unknown);
+        return table;
+    }
+
+    private static void apply(boolean[] table, List<String> names, boolean value, List<String> unknown) {
+        for (String name : names) {
+            Material material = name != null ? Material.matchMaterial(name.trim()) : null;
+            if (material == null || material.isLegacy()) {
+                if (!unknown.contains(name)) {
+                    unknown.add(name);
+                }
+                continue;
+            }
+            table[material.ordinal()] = value;
+        }
+    }
+
+    /**
+     * @return true, если на этом блоке можно стоять
+     */
+    public boolean isFloor(Material material) {
+        return floor[material.ordinal()];
+    }
+
+    /**
+     * @return true, если в этом блоке могут находиться ноги игрока
+     */
+    public boolean isBody(Material material) {
+        return body[material.ordinal()];
+    }
+
+    /**
+     * @return true, если в этом блоке может находиться голова игрока (и блок над ней)
+     */
+    public boolean isHead(Material material) {
+        return head[material.ordinal()];
+    }
+
+    /**
+     * @return true, если блок защищает от солнца
+     */
+    public boolean isRoof(Material material) {
+        return roof[material.ordinal()];
+    }
+
+    /**
+     * @return Нераспознанные названия материалов из конфига
+     */
+    public List<String> getUnknownMaterials() {
+        return unknownMaterials;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SafetyRules other)) {
+            return false;
+        }
+        return Arrays.equals(floor, other.floor)
+                && Arrays.equals(body, other.body)
+                && Arrays.equals(head, other.head)
+                && Arrays.equals(roof, other.roof);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(floor);
+        result = 31 * result + Arrays.hashCode(body);
+        result = 31 * result + Arrays.hashCode(head);
+        result = 31 * result + Arrays.hashCode(roof);
+        return result;
+    }
+}
@@ -0,0 +1,52 @@
+package com.dwarfspawn.spawn;
+
+import com.dwarfspawn.PluginSettings;
+
+import java.util.Random;
+
+/**
+ * Настройки, от которых зависит сам алгоритм поиска места спавна
+ * @param spawnRadius Радиус спавна (в блоках)
+ * @param minSpawnHeight Минимальная высота спавна
+ * @param maxSpawnHeight Максимальная высота спавна
+ * @param checkBlockAbove Требовать блок над головой
+ * @param maxSpawnAttempts Количество случайных кандидатов
+ * @param sampling Способ выбора кандидатов
+ * @param safetyRules Правила подходящих блоков
+ */
+public record SearchSettings(
+        int spawnRadius,
+        int minSpawnHeight,
+        int maxSpawnHeight,
+        boolean checkBlockAbove,
+        int maxSpawnAttempts,
+        SpawnSampling sampling,
+        SafetyRules safetyRules) {
+
+    /**
+     * Настройки со стандартными правилами блоков
+     */
+    public SearchSettings(int spawnRadius, int minSpawnHeight, int maxSpawnHeight, boolean checkBlockAbove,
+            int maxSpawnAttempts, SpawnSampling sampling) {
+        this(spawnRadius, minSpawnHeight, maxSpawnHeight, checkBlockAbove, maxSpawnAttempts, sampling,
+                SafetyRules.DEFAULT);
+    }
+
+    /**
+     * @return Источник кандидатов для одного поиска вокруг центра
+     */
+    public CandidateSampler newSampler(double centerX, double centerZ, Random random) {
+        return sampling.newSampler(centerX, centerZ, this, random);
+    }
+
+    public static SearchSettings of(PluginSettings settings) {
+        return new SearchSettings(
+                settings.spawnRadius(),
+                settings.minSpawnHeight(),
+                settings.maxSpawnHeight(),
+                settings.checkBlockAbove(),
+                settings.maxSpawnAttempts(),
+                settings.spawnSampling(),
+                settings.safetyRules());
+    }
+}
@@ -0,0 +1,78 @@
+package com.dwarfspawn.spawn;
+
+/**
+ * Счетчики одного поиска места спавна. Поиск выполняется последовательно (даже
+ * если этапы идут в разных потоках), поэтому счетчики - обычные поля. При
+ * параллельной проверке кандидатов у каждой задачи свои счетчики, которые потом
+ * складываются через merge(). В общую статистику они попадают один раз, по
+ * окончании поиска (см. SpawnStats#record).
+ */
+public class SearchTrace {
+    private final long startNanos = System.nanoTime();
+    private SpawnStats.Outcome outcome = SpawnStats.Outcome.VANILLA_FALLBACK;
+    private int attempts;
+    private int columnsScanned;
+    private int cacheHits;
+    private int chunkLoads;
+
+    /** Проверен очередной случайный кандидат */
+    public void attempt() {
+        attempts++;
+    }
+
+    /** Колонна проверена по блокам */
+    public void columnScanned() {
+        columnsScanned++;
+    }
+
+    /** Подходящие высоты колонны взяты из кэша колонн */
+    public void cacheHit() {
+        cacheHits++;
+    }
+
+    /** Поиск загрузил (или запросил загрузку) незагруженных чанков */
+    public void chunkLoads(int count) {
+        chunkLoads += count;
+    }
+
+    /**
+     * Добавляет счетчики части поиска, выполненной отдельно (исход не меняется)
+     */
+    public void merge(SearchTrace other) {
+        attempts += other.attempts;
+        columnsScanned += other.columnsScanned;
+        cacheHits += other.cacheHits;
+        chunkLoads += other.chunkLoads;
+    }
+
+    /**
+     * Запоминает, как завершился поиск (по умолчанию - место не найдено)
+     */
+    public void setOutcome(SpawnStats.Outcome outcome) {
+        this.outcome = outcome;
+    }
+
+    public SpawnStats.Outcome getOutcome() {
+        return outcome;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public int getColumnsScanned() {
+        return columnsScanned;
+    }
+
+    public int getCacheHits() {
+        return cacheHits;
+    }
+
+    public int getChunkLoads() {
+        return chunkLoads;
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+}
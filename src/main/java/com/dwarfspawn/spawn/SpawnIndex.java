@@ -0,0 +1,265 @@
+package com.dwarfspawn.spawn;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Индекс заранее проверенных колонн, в которых есть место для спавна.
+ * Заполняется прогревом области спавна ({@link SpawnWarmup}), а поиск при
+ * возрождении берет отсюда первых кандидатов вместо случайных точек.
+ * Точки индекса не гарантированно актуальны: при изменении блоков из индекса
+ * удаляется только затронутая колонна (остальные колонны чанка по-прежнему
+ * годятся), а поиск все равно проверяет кандидата по самому миру.
+ * Хранится по чанкам, на колонну - одно int: (номер колонны в чанке << 16) | высота.
+ * Проверенные чанки без подходящих колонн тоже запоминаются, чтобы не проверять их снова.
+ * Может использоваться из любого потока.
+ */
+public class SpawnIndex {
+    // Сколько первых кандидатов поиска берется из индекса, дальше - обычные случайные точки
+    private static final int INDEX_CANDIDATES = 8;
+
+    private final Map<UUID, WorldIndex> worlds = new HashMap<>();
+    // Растет при каждом изменении, чтобы знать, нужно ли сохранять индекс
+    private long version;
+
+    /**
+     * Запоминает подходящие колонны одного чанка (прежние колонны чанка заменяются)
+     * @param points Найденные места спавна внутри чанка
+     */
+    public synchronized void putChunk(UUID worldId, int chunkX, int chunkZ, Iterable<SpawnPoint> points) {
+        int[] entries = new int[16];
+        int size = 0;
+        for (SpawnPoint point : points) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size++] = pack(point.blockX(), point.blockY(), point.blockZ());
+        }
+
+        putEntries(worldId, chunkKey(chunkX, chunkZ), Arrays.copyOf(entries, size));
+    }
+
+    /**
+     * @return Случайная колонна из индекса мира (в центре блока) или null, если индекс пуст
+     */
+    public synchronized SpawnPoint random(UUID worldId, Random random) {
+        WorldIndex index = worlds.get(worldId);
+        if (index == null || index.size == 0) {
+            return null;
+        }
+
+        // Сначала равномерно выбираем чанк, чтобы кандидаты не сгущались в пещерных районах
+        int slot = random.nextInt(index.size);
+        long key = index.chunkKeys[slot];
+        int[] entries = index.entries[slot];
+        int entry = entries[random.nextInt(entries.length)];
+        int column = entry >>> 16;
+        int x = ((int) (key >> 32) << 4) | (column >> 4);
+        int z = ((int) key << 4) | (column & 15);
+        return new SpawnPoint(x + 0.5, (short) entry, z + 0.5);
+    }
+
+    /**
+     * Оборачивает источник кандидатов одного поиска: первые кандидаты берутся из
+     * индекса мира, а когда они кончились (или индекс пуст) - из исходного источника
+     */
+    public CandidateSampler prepend(UUID worldId, CandidateSampler sampler, Random random) {
+        return new CandidateSampler() {
+            private int remaining = INDEX_CANDIDATES;
+
+            @Override
+            public SpawnPoint next() {
+                if (remaining > 0) {
+                    remaining--;
+                    SpawnPoint indexed = random(worldId, random);
+                    if (indexed != null) {
+                        return indexed;
+                    }
+                    remaining = 0;
+                }
+                return sampler.next();
+            }
+        };
+    }
+
+    /**
+     * Удаляет из индекса колонну, в которой изменился блок. Чанк остается
+     * проверенным: прогрев проверяет только сетку колонн, и изменение одной
+     * колонны не делает остальные места чанка хуже
+     * @param x Мировая координата X колонны
+     * @param z Мировая координата Z колонны
+     */
+    public synchronized void invalidateColumn(UUID worldId, int x, int z) {
+        WorldIndex index = worlds.get(worldId);
+        if (index == null) {
+            return;
+        }
+        long key = chunkKey(x >> 4, z >> 4);
+        Integer slot = index.slots.get(key);
+        if (slot == null) {
+            return;
+        }
+
+        int column = (x & 15) << 4 | (z & 15);
+        int[] entries = index.entries[slot];
+        int kept = 0;
+        int[] remaining = new int[entries.length];
+        for (int entry : entries) {
+            if (entry >>> 16 != column) {
+                remaining[kept++] = entry;
+            }
+        }
+        if (kept == entries.length) {
+            return; // Колонны нет в индексе (обычный случай: индексируется только сетка колонн)
+        }
+        putEntries(worldId, key, Arrays.copyOf(remaining, kept));
+    }
+
+    /**
+     * @return true, если чанк уже проверен и есть в индексе
+     */
+    public synchronized boolean containsChunk(UUID worldId, int chunkX, int chunkZ) {
+        WorldIndex index = worlds.get(worldId);
+        if (index == null) {
+            return false;
+        }
+        long key = chunkKey(chunkX, chunkZ);
+        return index.slots.containsKey(key) || index.emptyChunks.contains(key);
+    }
+
+    /**
+     * Очищает индекс (например, после перезагрузки конфигурации)
+     */
+    public synchronized void clear() {
+        worlds.clear();
+        version++;
+    }
+
+    /**
+     * @return Номер последнего изменения индекса
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Миры, для которых в индексе есть проверенные чанки
+     */
+    public synchronized Set<UUID> getWorldIds() {
+        return new HashSet<>(worlds.keySet());
+    }
+
+    /**
+     * Копия индекса мира для сохранения: ключ чанка -> упакованные колонны
+     * (пустой массив - чанк проверен, но мест в нем нет)
+     */
+    synchronized Map<Long, int[]> exportWorld(UUID worldId) {
+        Map<Long, int[]> chunks = new LinkedHashMap<>();
+        WorldIndex index = worlds.get(worldId);
+        if (index == null) {
+            return chunks;
+        }
+        // Массивы колонн после добавления не меняются, поэтому копировать их не нужно
+        for (int slot = 0; slot < index.size; slot++) {
+            chunks.put(index.chunkKeys[slot], index.entries[slot]);
+        }
+        for (long key : index.emptyChunks) {
+            chunks.put(key, new int[0]);
+        }
+        return chunks;
+    }
+
+    /**
+     * Добавляет сохраненные ранее чанки (уже проверенные чанки не заменяются)
+     */
+    synchronized void importWorld(UUID worldId, Map<Long, int[]> chunks) {
+        WorldIndex index = worlds.computeIfAbsent(worldId, id -> new WorldIndex());
+        for (Map.Entry<Long, int[]> chunk : chunks.entrySet()) {
+            long key = chunk.getKey();
+            if (!index.slots.containsKey(key) && !index.emptyChunks.contains(key)) {
+                putEntries(worldId, key, chunk.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return Количество колонн в индексе мира
+     */
+    public synchronized int size(UUID worldId) {
+        WorldIndex index = worlds.get(worldId);
+        if (index == null) {
+            return 0;
+        }
+        int columns = 0;
+        for (int slot = 0; slot < index.size; slot++) {
+            columns += index.entries[slot].length;
+        }
+        return columns;
+    }
+
+    private void putEntries(UUID worldId, long key, int[] entries) {
+        WorldIndex index = worlds.computeIfAbsent(worldId, id -> new WorldIndex());
+        index.removeChunk(key);
+        if (entries.length > 0) {
+            index.addChunk(key, entries);
+        } else {
+            index.emptyChunks.add(key);
+        }
+        version++;
+    }
+
+    private static int pack(int x, int y, int z) {
+        return ((x & 15) << 4 | (z & 15)) << 16 | (y & 0xFFFF);
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Чанки одного мира в плотных массивах, чтобы случайный чанк выбирался за O(1).
+     * При удалении на место чанка переставляется последний.
+     */
+    private static class WorldIndex {
+        private final Map<Long, Integer> slots = new HashMap<>(); // ключ чанка -> позиция в массивах
+        private final Set<Long> emptyChunks = new HashSet<>(); // проверенные чанки без мест
+        private long[] chunkKeys = new long[64];
+        private int[][] entries = new int[64][];
+        private int size;
+
+        private void addChunk(long key, int[] chunkEntries) {
+            if (size == chunkKeys.length) {
+                chunkKeys = Arrays.copyOf(chunkKeys, size * 2);
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            chunkKeys[size] = key;
+            entries[size] = chunkEntries;
+            slots.put(key, size);
+            size++;
+        }
+
+        /**
+         * @return true, если чанк был в индексе
+         */
+        private boolean removeChunk(long key) {
+            Integer slot = slots.remove(key);
+            if (slot == null) {
+                return emptyChunks.remove(key);
+            }
+            int last = --size;
+            if (slot != last) {
+                chunkKeys[slot] = chunkKeys[last];
+                entries[slot] = entries[last];
+                slots.put(chunkKeys[slot], slot);
+            }
+            entries[last] = null;
+            return true;
+        }
+    }
+}
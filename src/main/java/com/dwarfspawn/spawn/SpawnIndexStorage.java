@@ -0,0 +1,241 @@
+package com.dwarfspawn.spawn;
+
+import com.dwarfspawn.ConfigManager;
+import com.dwarfspawn.PluginSettings;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Хранение индекса мест спавна на диске, чтобы после перезапуска сервера не
+ * проверять область спавна заново. Для каждого мира - отдельный файл в папке
+ * spawn-index: заголовок (сигнатура, версия формата, хэш настроек поиска), затем
+ * чанки: x, z, количество колонн и сами упакованные колонны (int).
+ * Файл с другими настройками поиска не загружается. Изменения блоков, пока
+ * сервер работает, удаляют колонны из индекса и попадают в файл при следующем
+ * сохранении; изменения мира без сервера ловит проверка кандидата при поиске.
+ */
+public class SpawnIndexStorage {
+    private static final int MAGIC = 0x44575349; // "DWSI"
+    private static final int FORMAT_VERSION = 1;
+    // Как часто изменения индекса сохраняются на диск (в тиках)
+    private static final long SAVE_INTERVAL_TICKS = 6000L;
+    // Защита от поврежденного файла: в чанке не может быть больше 256 колонн
+    private static final int MAX_COLUMNS_PER_CHUNK = 256;
+
+    private final JavaPlugin plugin;
+    private final ConfigManager configManager;
+    private final SpawnIndex index;
+    private final File directory;
+    private final Object ioLock = new Object();
+    private BukkitTask saveTask;
+    // Хэш настроек, по которым построен текущий индекс
+    private volatile int settingsHash;
+    private volatile long savedVersion;
+
+    public SpawnIndexStorage(JavaPlugin plugin, ConfigManager configManager, SpawnIndex index) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+        this.index = index;
+        this.directory = new File(plugin.getDataFolder(), "spawn-index");
+    }
+
+    /**
+     * Асинхронно загружает сохраненный индекс мира спавна и запускает периодическое сохранение.
+     * При выключенном прогреве индекс не загружается: старый файл не должен влиять на спавн
+     * @return Future, который завершается в главном потоке после загрузки
+     */
+    public CompletableFuture<Void> start() {
+        PluginSettings settings = configManager.getSettings();
+        settingsHash = hashSettings(settings);
+        savedVersion = index.getVersion();
+        if (!settings.warmupEnabled()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (saveTask == null) {
+            saveTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::save,
+                    SAVE_INTERVAL_TICKS, SAVE_INTERVAL_TICKS);
+        }
+
+        CompletableFuture<Void> loaded = new CompletableFuture<>();
+        Location center = configManager.getSpawnLocation();
+        if (center == null || center.getWorld() == null) {
+            loaded.complete(null);
+            return loaded;
+        }
+
+        UUID worldId = center.getWorld().getUID();
+        int expectedHash = settingsHash;
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            load(worldId, expectedHash);
+            if (plugin.isEnabled()) {
+                Bukkit.getScheduler().runTask(plugin, () -> loaded.complete(null));
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Останавливает периодическое сохранение и сохраняет индекс (при выключении плагина)
+     */
+    public void stop() {
+        if (saveTask != null) {
+            saveTask.cancel();
+            saveTask = null;
+        }
+        save();
+    }
+
+    /**
+     * Вызывается после перезагрузки конфигурации: если изменились настройки, от
+     * которых зависят места в индексе, индекс очищается и будет построен заново.
+     * Если прогрев включили только сейчас, сохраненный индекс загружается, как при запуске
+     * @return Future, который завершается в главном потоке, когда индекс готов
+     */
+    public CompletableFuture<Void> resetIfSettingsChanged() {
+        PluginSettings settings = configManager.getSettings();
+        if (settings.warmupEnabled() && saveTask == null) {
+            return start();
+        }
+        int newHash = hashSettings(settings);
+        synchronized (ioLock) {
+            // Под блокировкой, чтобы сохранение не записало старый индекс с новым хэшем
+            if (newHash != settingsHash) {
+                settingsHash = newHash;
+                index.clear();
+            }
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Сохраняет индекс всех миров, если он менялся с прошлого сохранения
+     */
+    public void save() {
+        synchronized (ioLock) {
+            long version = index.getVersion();
+            if (version == savedVersion) {
+                return;
+            }
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                plugin.getLogger().warning("Не удалось создать папку " + directory.getPath());
+                return;
+            }
+
+            for (UUID worldId : index.getWorldIds()) {
+                try {
+                    write(worldId, index.exportWorld(worldId));
+                } catch (IOException e) {
+                    plugin.getLogger().warning("Не удалось сохранить индекс мест спавна мира " + worldId
+                            + ": " + e.getMessage());
+                    return;
+                }
+            }
+            savedVersion = version;
+        }
+    }
+
+    private void load(UUID worldId, int expectedHash) {
+        File file = getFile(worldId);
+        if (!file.isFile()) {
+            return;
+        }
+
+        synchronized (ioLock) {
+            Map<Long, int[]> chunks = new HashMap<>();
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+                if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                    plugin.getLogger().warning("Файл " + file.getName() + " не является индексом мест спавна");
+                    return;
+                }
+                if (in.readInt() != expectedHash) {
+                    plugin.getLogger().info("Индекс мест спавна построен для других настроек и будет построен заново");
+                    return;
+                }
+
+                int chunkCount = in.readInt();
+                for (int i = 0; i < chunkCount; i++) {
+                    int chunkX = in.readInt();
+                    int chunkZ = in.readInt();
+                    int columnCount = in.readInt();
+                    if (columnCount < 0 || columnCount > MAX_COLUMNS_PER_CHUNK) {
+                        throw new IOException("неверное количество колонн: " + columnCount);
+                    }
+                    int[] entries = new int[columnCount];
+                    for (int column = 0; column < columnCount; column++) {
+                        entries[column] = in.readInt();
+                    }
+                    chunks.put(((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL), entries);
+                }
+            } catch (IOException e) {
+                plugin.getLogger().warning("Не удалось прочитать индекс мест спавна: " + e.getMessage());
+                return;
+            }
+
+            index.importWorld(worldId, chunks);
+            // Только что загруженное совпадает с файлом
+            savedVersion = index.getVersion();
+            plugin.getLogger().info("Загружен индекс мест спавна: " + chunks.size() + " чанков, "
+                    + index.size(worldId) + " мест");
+        }
+    }
+
+    private void write(UUID worldId, Map<Long, int[]> chunks) throws IOException {
+        // Пишем во временный файл и заменяем им старый, чтобы не оставить поврежденный файл
+        Path target = getFile(worldId).toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(settingsHash);
+            out.writeInt(chunks.size());
+            for (Map.Entry<Long, int[]> chunk : chunks.entrySet()) {
+                long key = chunk.getKey();
+                out.writeInt((int) (key >> 32));
+                out.writeInt((int) key);
+                out.writeInt(chunk.getValue().length);
+                for (int entry : chunk.getValue()) {
+                    out.writeInt(entry);
+                }
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private File getFile(UUID worldId) {
+        return new File(directory, worldId + ".bin");
+    }
+
+    /**
+     * Хэш настроек, от которых зависят места в индексе
+     */
+    private static int hashSettings(PluginSettings settings) {
+        return Objects.hash(
+                settings.spawnWorldName(),
+                (int) Math.floor(settings.spawnX()),
+                (int) Math.floor(settings.spawnZ()),
+                settings.spawnRadius(),
+                settings.minSpawnHeight(),
+                settings.maxSpawnHeight(),
+                settings.checkBlockAbove(),
+                settings.safetyRules());
+    }
+}
@@ -0,0 +1,333 @@
+package com.dwarfspawn.spawn;
+
+import com.dwarfspawn.ConfigManager;
+import com.dwarfspawn.PluginSettings;
+import com.dwarfspawn.compat.PaperCompat;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Поиск места спавна в настоящем мире: загрузка чанков, снятие снимков и выбор
+ * потока. Сам алгоритм проверки находится в {@link SpawnSearchEngine}.
+ */
+public class SpawnLocationFinder {
+    // Сколько кандидатов асинхронный поиск загружает и проверяет за один заход
+    private static final int ASYNC_BATCH_SIZE = 8;
+
+    private final ConfigManager configManager;
+    private final ColumnCache columnCache;
+    private final SpawnIndex spawnIndex;
+    private final SpawnSearchEngine engine;
+    private final ParallelCandidateEvaluator parallelEvaluator;
+    private final SpawnStats stats;
+    private final Random random = new Random();
+    private final Executor asyncExecutor;
+    private final Executor mainThreadExecutor;
+
+    public SpawnLocationFinder(JavaPlugin plugin, ConfigManager configManager, SpawnSearchEngine engine,
+            ColumnCache columnCache, SpawnIndex spawnIndex, SpawnStats stats) {
+        this.configManager = configManager;
+        this.columnCache = columnCache;
+        this.spawnIndex = spawnIndex;
+        this.engine = engine;
+        this.parallelEvaluator = new ParallelCandidateEvaluator(engine);
+        this.stats = stats;
+        this.asyncExecutor = task -> Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
+        // Асинхронный поиск работает только на Paper, на других серверах исполнитель не понадобится
+        this.mainThreadExecutor = PaperCompat.hasAsyncChunks()
+                ? Bukkit.getScheduler().getMainThreadExecutor(plugin)
+                : task -> Bukkit.getScheduler().runTask(plugin, task);
+    }
+
+    /**
+     * Синхронно ищет место спавна: случайное место в радиусе от центра (если радиус
+     * включен), а если не нашли - в колонне самого центра.
+     * Незагруженные чанки загружаются прямо в главном потоке.
+     * @param center Центр радиуса спавна (или конкретная точка спавна)
+     * @param world Мир
+     * @return Найденное место или null
+     */
+    public Location findSpawnLocation(Location center, World world) {
+        SearchTrace trace = new SearchTrace();
+        try {
+            // Настройки читаем один раз на весь поиск
+            PluginSettings pluginSettings = configManager.getSettings();
+            SearchSettings settings = SearchSettings.of(pluginSettings);
+            ChunkPolicy chunkPolicy = pluginSettings.chunkPolicy();
+            ChunkSnapshotCache snapshots = newSnapshots(world, chunkPolicy);
+
+            SpawnPoint validPoint = null;
+            if (pluginSettings.radiusEnabled()) {
+                validPoint = engine.findRandom(snapshots, newSampler(center, world, pluginSettings, settings),
+                        settings.maxSpawnAttempts(), settings, trace);
+                if (validPoint != null) {
+                    trace.setOutcome(SpawnStats.Outcome.RANDOM);
+                }
+            }
+            if (validPoint == null) {
+                // Если не удалось найти подходящее место, проверяем базовую точку
+                validPoint = engine.findInColumn(SpawnPoint.of(center), snapshots, settings, trace);
+                if (validPoint != null) {
+                    trace.setOutcome(pluginSettings.radiusEnabled()
+                            ? SpawnStats.Outcome.CENTER_FALLBACK
+                            : SpawnStats.Outcome.FIXED_POINT);
+                }
+            }
+            trace.chunkLoads(snapshots.getChunkLoads());
+            return toLocation(validPoint, world);
+        } catch (Exception e) {
+            // Если что-то пошло не так, возвращаем null (используется дефолтный спавн)
+            return null;
+        } finally {
+            stats.record(trace);
+        }
+    }
+
+    /**
+     * Асинхронно ищет место спавна. Чанки кандидатов подгружаются через
+     * World#getChunkAtAsync, поэтому главный поток не ждет чтения с диска и генерации.
+     * В главном потоке с загруженных чанков только снимаются снимки, а сами колонны
+     * проверяются в асинхронном потоке.
+     * @param center Центр радиуса спавна (или конкретная точка спавна)
+     * @param world Мир
+     * @return Future с найденным местом или null, если место не найдено. Если его
+     *         отменить, поиск остановится перед следующей порцией кандидатов
+     */
+    public CompletableFuture<Location> findSpawnLocationAsync(Location center, World world) {
+        PluginSettings pluginSettings = configManager.getSettings();
+        SearchSettings settings = SearchSettings.of(pluginSettings);
+        ChunkPolicy chunkPolicy = pluginSettings.chunkPolicy();
+        int parallelism = pluginSettings.searchThreads();
+        SearchTrace trace = new SearchTrace();
+        CompletableFuture<Location> search = new CompletableFuture<>();
+        CompletableFuture<Location> result;
+        if (pluginSettings.radiusEnabled()) {
+            result = tryCandidatesAsync(center, world, newSampler(center, world, pluginSettings, settings),
+                    settings.maxSpawnAttempts(), true, settings, chunkPolicy, parallelism, trace, search::isDone);
+        } else {
+            result = findValidSpawnLocationAsync(center.clone(), world, settings, chunkPolicy, trace,
+                    SpawnStats.Outcome.FIXED_POINT);
+        }
+        // Если что-то пошло не так, возвращаем null (используется дефолтный спавн)
+        result.exceptionally(e -> null)
+                .whenComplete((location, error) -> {
+                    stats.record(trace);
+                    search.complete(location);
+                });
+        return search;
+    }
+
+    /**
+     * Асинхронно ищет случайное место в радиусе от центра, не проверяя сам центр,
+     * если попытки закончились. Используется для фонового заполнения пула точек.
+     * @param center Центр радиуса спавна
+     * @param world Мир
+     * @param maxAttempts Количество случайных кандидатов
+     * @return Future с найденным местом или null
+     */
+    public CompletableFuture<Location> findRandomSpawnLocationAsync(Location center, World world, int maxAttempts) {
+        PluginSettings pluginSettings = configManager.getSettings();
+        SearchSettings settings = SearchSettings.of(pluginSettings);
+        ChunkPolicy chunkPolicy = pluginSettings.chunkPolicy();
+        int parallelism = pluginSettings.searchThreads();
+        SearchTrace trace = new SearchTrace();
+        return tryCandidatesAsync(center, world, newSampler(center, world, pluginSettings, settings),
+                maxAttempts, false, settings, chunkPolicy, parallelism, trace, () -> false)
+                .exceptionally(e -> null)
+                .whenComplete((location, error) -> stats.recordPoolFill(trace));
+    }
+
+    /**
+     * Быстро перепроверяет ранее найденную точку без загрузки чанков
+     * @param location Ранее найденная точка спавна
+     * @return Актуальная точка в той же колонне или null, если она больше не подходит
+     */
+    public Location revalidate(Location location) {
+        World world = location.getWorld();
+        if (world == null) {
+            return null;
+        }
+
+        // Проверяем по самому миру, а не по кэшу колонн
+        SpawnPoint validPoint = engine.revalidate(SpawnPoint.of(location), newSnapshots(world, null),
+                getSearchSettings());
+        return toLocation(validPoint, world);
+    }
+
+    /**
+     * Возвращает место, где игрок может безопасно подождать окончания асинхронного
+     * поиска. Проверяется только центр спавна и только если его чанк уже загружен.
+     * @param center Центр радиуса спавна
+     * @param world Мир
+     * @return Место ожидания или null, если его нельзя получить без загрузки чанка
+     */
+    public Location findHoldingLocation(Location center, World world) {
+        try {
+            // Это не поиск места для игрока, поэтому в статистику не попадает
+            SpawnPoint validPoint = engine.findInColumn(SpawnPoint.of(center), newSnapshots(world, null),
+                    getSearchSettings(), new SearchTrace());
+            return toLocation(validPoint, world);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private CompletableFuture<Location> tryCandidatesAsync(Location center, World world, CandidateSampler sampler,
+            int remainingAttempts, boolean fallbackToCenter, SearchSettings settings, ChunkPolicy chunkPolicy,
+            int parallelism, SearchTrace trace, BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) {
+            // Результат больше не нужен - не загружаем чанки следующей порции
+            return CompletableFuture.completedFuture(null);
+        }
+        if (remainingAttempts <= 0) {
+            // Если не удалось найти подходящее место, проверяем базовую точку
+            return fallbackToCenter
+                    ? findValidSpawnLocationAsync(center, world, settings, chunkPolicy, trace,
+                            SpawnStats.Outcome.CENTER_FALLBACK)
+                    : CompletableFuture.completedFuture(null);
+        }
+
+        // При параллельной проверке в порции не меньше кандидатов, чем потоков
+        int batchSize = Math.min(Math.max(ASYNC_BATCH_SIZE, parallelism), remainingAttempts);
+        List<SpawnPoint> candidates = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            candidates.add(sampler.next());
+        }
+
+        return loadChunksAsync(candidates, world, SpawnSearchEngine.NEARBY_SEARCH_RADIUS, chunkPolicy, trace)
+                // Чанки загружены - снимаем снимки в главном потоке
+                .thenApply(loaded -> captureSnapshots(candidates, world))
+                // Проверяем колонны вне главного потока
+                .thenComposeAsync(snapshots -> findFirstValid(candidates, snapshots, settings, parallelism, trace),
+                        asyncExecutor)
+                // Следующую порцию кандидатов запрашиваем снова из главного потока
+                .thenComposeAsync(validPoint -> {
+                    if (validPoint != null) {
+                        trace.setOutcome(SpawnStats.Outcome.RANDOM);
+                        return CompletableFuture.completedFuture(toLocation(validPoint, world));
+                    }
+                    return tryCandidatesAsync(center, world, sampler, remainingAttempts - batchSize,
+                            fallbackToCenter, settings, chunkPolicy, parallelism, trace, cancelled);
+                }, mainThreadExecutor);
+    }
+
+    /**
+     * Проверяет порцию кандидатов по замороженным снимкам: последовательно или,
+     * если задан parallel-search-threads, параллельно в пуле потоков
+     */
+    private CompletableFuture<SpawnPoint> findFirstValid(List<SpawnPoint> candidates, ChunkSnapshotCache snapshots,
+            SearchSettings settings, int parallelism, SearchTrace trace) {
+        if (parallelism <= 1) {
+            return CompletableFuture.completedFuture(engine.findFirstValid(candidates, snapshots, settings, trace));
+        }
+        return parallelEvaluator.findFirstValid(candidates, snapshots, settings, parallelism, trace);
+    }
+
+    /**
+     * Останавливает потоки параллельной проверки (при выключении плагина)
+     */
+    public void shutdown() {
+        parallelEvaluator.shutdown();
+    }
+
+    /**
+     * Асинхронно загружает чанк точки и проверяет ее колонну
+     * @param outcome Чем закончился поиск, если место в колонне нашлось
+     */
+    private CompletableFuture<Location> findValidSpawnLocationAsync(Location location, World world,
+            SearchSettings settings, ChunkPolicy chunkPolicy, SearchTrace trace, SpawnStats.Outcome outcome) {
+        SpawnPoint point = SpawnPoint.of(location);
+        return loadChunksAsync(List.of(point), world, 0, chunkPolicy, trace)
+                .thenApply(loaded -> {
+                    SpawnPoint validPoint = engine.findInColumn(point, newSnapshots(world, null), settings, trace);
+                    if (validPoint != null) {
+                        trace.setOutcome(outcome);
+                    }
+                    return toLocation(validPoint, world);
+                });
+    }
+
+    private ChunkSnapshotCache captureSnapshots(List<SpawnPoint> candidates, World world) {
+        ChunkSnapshotCache snapshots = newSnapshots(world, null);
+        for (SpawnPoint candidate : candidates) {
+            snapshots.captureArea(candidate.blockX(), candidate.blockZ(), SpawnSearchEngine.NEARBY_SEARCH_RADIUS);
+        }
+        return snapshots.freeze();
+    }
+
+    /**
+     * Асинхронно загружает (и при необходимости генерирует) все чанки, которые
+     * покрывают квадраты со стороной 2 * radius + 1 вокруг точек. Чанки, которые
+     * нельзя загружать по spawn-chunk-policy, пропускаются.
+     */
+    private CompletableFuture<Void> loadChunksAsync(List<SpawnPoint> points, World world, int radius,
+            ChunkPolicy chunkPolicy, SearchTrace trace) {
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        Set<Long> requested = new HashSet<>();
+        int unloaded = 0;
+        for (SpawnPoint point : points) {
+            int minChunkX = (point.blockX() - radius) >> 4;
+            int maxChunkX = (point.blockX() + radius) >> 4;
+            int minChunkZ = (point.blockZ() - radius) >> 4;
+            int maxChunkZ = (point.blockZ() + radius) >> 4;
+
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+                for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                    // Соседние кандидаты часто попадают в одни и те же чанки
+                    if (!requested.add(((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL))) {
+                        continue;
+                    }
+                    if (world.isChunkLoaded(chunkX, chunkZ)) {
+                        continue;
+                    }
+                    if (chunkPolicy.mayLoad(world, chunkX, chunkZ)) {
+                        unloaded++;
+                        futures.add(world.getChunkAtAsync(chunkX, chunkZ));
+                    }
+                }
+            }
+        }
+        trace.chunkLoads(unloaded);
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    private SearchSettings getSearchSettings() {
+        return SearchSettings.of(configManager.getSettings());
+    }
+
+    private static Location toLocation(SpawnPoint point, World world) {
+        return point == null ? null : point.toLocation(world);
+    }
+
+    /**
+     * @return Источник кандидатов для одного поиска: сначала места из индекса
+     *         прогрева (если прогрев включен), затем случайные точки; все с учетом
+     *         spawn-chunk-policy
+     */
+    private CandidateSampler newSampler(Location center, World world, PluginSettings pluginSettings,
+            SearchSettings settings) {
+        CandidateSampler sampler = settings.newSampler(center.getX(), center.getZ(), random);
+        if (pluginSettings.warmupEnabled()) {
+            sampler = spawnIndex.prepend(world.getUID(), sampler, random);
+        }
+        return pluginSettings.chunkPolicy().filter(sampler, world);
+    }
+
+    /**
+     * @param loadPolicy Какие чанки можно загружать синхронно, null - никакие
+     */
+    private ChunkSnapshotCache newSnapshots(World world, ChunkPolicy loadPolicy) {
+        return new ChunkSnapshotCache(world, loadPolicy, columnCache.currentStamp());
+    }
+}
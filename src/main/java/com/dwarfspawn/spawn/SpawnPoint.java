@@ -0,0 +1,30 @@
+package com.dwarfspawn.spawn;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+/**
+ * Точка в мире без привязки к объекту World: кандидат или найденное место спавна
+ */
+public record SpawnPoint(double x, double y, double z) {
+
+    public int blockX() {
+        return (int) Math.floor(x);
+    }
+
+    public int blockY() {
+        return (int) Math.floor(y);
+    }
+
+    public int blockZ() {
+        return (int) Math.floor(z);
+    }
+
+    public static SpawnPoint of(Location location) {
+        return new SpawnPoint(location.getX(), location.getY(), location.getZ());
+    }
+
+    public Location toLocation(World world) {
+        return new Location(world, x, y, z);
+    }
+}
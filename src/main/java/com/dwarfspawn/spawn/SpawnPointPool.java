@@ -0,0 +1,183 @@
+package com.dwarfspawn.spawn;
+
+import com.dwarfspawn.ConfigManager;
+import com.dwarfspawn.compat.PaperCompat;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Пул заранее найденных безопасных точек спавна для каждого мира.
+ * Пул заполняется в фоне асинхронным поиском, а при возрождении точка просто
+ * достается из пула и быстро перепроверяется. Чанк каждой точки удерживается
+ * загруженным через общий счетчик тикетов {@link ChunkTickets}, пока точка находится в пуле.
+ * Все методы вызываются только из главного потока.
+ */
+public class SpawnPointPool {
+    // Как часто проверяем, нужно ли дополнить пул (в тиках)
+    private static final long FILL_INTERVAL_TICKS = 20L;
+    // Сколько случайных кандидатов проверяет одна фоновая попытка заполнения
+    private static final int FILL_ATTEMPTS = 10;
+
+    private final JavaPlugin plugin;
+    private final ConfigManager configManager;
+    private final SpawnLocationFinder spawnLocationFinder;
+    private final SpawnStats stats;
+    private final ChunkTickets chunkTickets;
+    private final Map<String, Deque<Location>> pools = new HashMap<>(); // имя мира -> точки
+    private final Set<String> fillingWorlds = new HashSet<>();
+    private BukkitTask fillTask;
+
+    public SpawnPointPool(JavaPlugin plugin, ConfigManager configManager, SpawnLocationFinder spawnLocationFinder,
+            SpawnStats stats, ChunkTickets chunkTickets) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+        this.spawnLocationFinder = spawnLocationFinder;
+        this.stats = stats;
+        this.chunkTickets = chunkTickets;
+    }
+
+    /**
+     * Запускает фоновое заполнение пула
+     */
+    public void start() {
+        if (fillTask != null) {
+            return;
+        }
+        fillTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                fill();
+            }
+        }.runTaskTimer(plugin, FILL_INTERVAL_TICKS, FILL_INTERVAL_TICKS);
+    }
+
+    /**
+     * Останавливает заполнение и освобождает все точки (и их тикеты чанков)
+     */
+    public void stop() {
+        if (fillTask != null) {
+            fillTask.cancel();
+            fillTask = null;
+        }
+        clear();
+    }
+
+    /**
+     * Достает из пула точку спавна для мира и перепроверяет ее
+     * @param world Мир
+     * @return Готовая точка спавна или null, если пул пуст
+     */
+    public Location poll(World world) {
+        Deque<Location> pool = pools.get(world.getName());
+        if (pool == null) {
+            return null;
+        }
+
+        SearchTrace trace = new SearchTrace();
+        Location pooled;
+        while ((pooled = pool.pollFirst()) != null) {
+            chunkTickets.release(pooled);
+            Location valid = spawnLocationFinder.revalidate(pooled);
+            if (valid != null) {
+                // Промах пула не учитываем: дальше будет обычный поиск со своей статистикой
+                trace.setOutcome(SpawnStats.Outcome.POOL);
+                stats.record(trace);
+                return valid;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Удаляет из пула все точки в указанном чанке (чанк изменился или выгрузился)
+     * @param world Мир
+     * @param chunkX Координата X чанка
+     * @param chunkZ Координата Z чанка
+     */
+    public void invalidateChunk(World world, int chunkX, int chunkZ) {
+        Deque<Location> pool = pools.get(world.getName());
+        if (pool == null || pool.isEmpty()) {
+            return;
+        }
+
+        Iterator<Location> iterator = pool.iterator();
+        while (iterator.hasNext()) {
+            Location location = iterator.next();
+            if (location.getBlockX() >> 4 == chunkX && location.getBlockZ() >> 4 == chunkZ) {
+                iterator.remove();
+                chunkTickets.release(location);
+            }
+        }
+    }
+
+    /**
+     * Очищает все пулы (например, после перезагрузки конфигурации)
+     */
+    public void clear() {
+        for (Deque<Location> pool : pools.values()) {
+            for (Location location : pool) {
+                chunkTickets.release(location);
+            }
+            pool.clear();
+        }
+    }
+
+    public int size(World world) {
+        Deque<Location> pool = pools.get(world.getName());
+        return pool == null ? 0 : pool.size();
+    }
+
+    private void fill() {
+        int targetSize = configManager.getSpawnPoolSize();
+        if (targetSize <= 0 || !configManager.isRadiusEnabled() || !PaperCompat.hasAsyncChunks()) {
+            return;
+        }
+
+        Location baseSpawn = configManager.getSpawnLocation();
+        if (baseSpawn == null || baseSpawn.getWorld() == null) {
+            return;
+        }
+
+        World world = baseSpawn.getWorld();
+        String worldName = world.getName();
+        if (fillingWorlds.contains(worldName) || size(world) >= targetSize) {
+            return;
+        }
+
+        // Одна фоновая попытка на мир за раз, чтобы не загружать много чанков сразу
+        fillingWorlds.add(worldName);
+        // Обычно поиск и так завершается в главном потоке, но при ошибке в асинхронной
+        // стадии - в потоке, где она случилась, поэтому переходим в главный поток явно
+        spawnLocationFinder.findRandomSpawnLocationAsync(baseSpawn, world, FILL_ATTEMPTS)
+                .whenCompleteAsync((location, error) -> {
+                    fillingWorlds.remove(worldName);
+                    if (location != null && fillTask != null) {
+                        add(location);
+                    }
+                }, Bukkit.getScheduler().getMainThreadExecutor(plugin));
+    }
+
+    private void add(Location location) {
+        World world = location.getWorld();
+        Deque<Location> pool = pools.computeIfAbsent(world.getName(), name -> new ArrayDeque<>());
+        if (pool.size() >= configManager.getSpawnPoolSize() || pool.contains(location)) {
+            return;
+        }
+
+        // Держим чанк загруженным, чтобы точку можно было выдать без загрузки с диска
+        chunkTickets.acquire(location);
+        pool.addLast(location);
+    }
+}
@@ -0,0 +1,153 @@
+package com.dwarfspawn.spawn;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Способ выбора случайных кандидатов в радиусе спавна
+ */
+public enum SpawnSampling {
+    /** Случайные угол и расстояние (точки сгущаются к центру, как раньше) */
+    RANDOM,
+    /** Равномерно по площади круга */
+    UNIFORM,
+    /** Равномерно по площади, но по несколько разных колонн из каждого чанка и без повторов чанков */
+    CHUNK_STRATIFIED;
+
+    /**
+     * Создает источник кандидатов для одного поиска
+     */
+    public CandidateSampler newSampler(double centerX, double centerZ, SearchSettings settings, Random random) {
+        double y = candidateY(settings);
+        int radius = settings.spawnRadius();
+        return switch (this) {
+            case RANDOM -> () -> polarPoint(centerX, centerZ, radius, y, random.nextDouble() * radius, random);
+            case UNIFORM -> () -> uniformPoint(centerX, centerZ, radius, y, random);
+            case CHUNK_STRATIFIED -> new ChunkStratifiedSampler(centerX, centerZ, radius, y, random);
+        };
+    }
+
+    /**
+     * @return Способ по имени (без учета регистра) или null, если такого способа нет
+     */
+    public static SpawnSampling parse(String name) {
+        if (name == null) {
+            return null;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static double candidateY(SearchSettings settings) {
+        // Начинаем поиск с середины диапазона высот для лучшего результата
+        return (settings.minSpawnHeight() + settings.maxSpawnHeight()) / 2.0;
+    }
+
+    private static SpawnPoint uniformPoint(double centerX, double centerZ, int radius, double y, Random random) {
+        // Корень из равномерного числа дает одинаковую плотность точек по площади круга
+        return polarPoint(centerX, centerZ, radius, y, Math.sqrt(random.nextDouble()) * radius, random);
+    }
+
+    private static SpawnPoint polarPoint(double centerX, double centerZ, int radius, double y, double distance,
+            Random random) {
+        double angle = random.nextDouble() * 2 * Math.PI;
+        return new SpawnPoint(centerX + Math.cos(angle) * distance, y, centerZ + Math.sin(angle) * distance);
+    }
+
+    /**
+     * Выбирает чанк по равномерной точке круга (то есть пропорционально площади
+     * чанка внутри радиуса) и выдает из него до четырех кандидатов - по одному из
+     * каждой четверти чанка в случайном порядке. Использованные чанки больше не
+     * выбираются, поэтому колонны не повторяются, а кандидаты подряд попадают
+     * в уже загруженные чанки.
+     */
+    private static class ChunkStratifiedSampler implements CandidateSampler {
+        // Сколько раз пробуем найти еще не использованный чанк
+        private static final int CHUNK_RETRIES = 8;
+        // Сколько раз пробуем попасть в круг внутри четверти чанка
+        private static final int QUADRANT_RETRIES = 4;
+
+        private final double centerX;
+        private final double centerZ;
+        private final int radius;
+        private final double y;
+        private final Random random;
+        private final Set<Long> usedChunks = new HashSet<>();
+        private final int[] quadrants = {0, 1, 2, 3};
+        private int chunkX;
+        private int chunkZ;
+        private int nextQuadrant = quadrants.length;
+
+        private ChunkStratifiedSampler(double centerX, double centerZ, int radius, double y, Random random) {
+            this.centerX = centerX;
+            this.centerZ = centerZ;
+            this.radius = radius;
+            this.y = y;
+            this.random = random;
+        }
+
+        @Override
+        public SpawnPoint next() {
+            while (true) {
+                while (nextQuadrant < quadrants.length) {
+                    SpawnPoint point = pointInQuadrant(quadrants[nextQuadrant++]);
+                    if (point != null) {
+                        return point;
+                    }
+                }
+                if (!nextChunk()) {
+                    // Все чанки в радиусе уже использованы - дальше просто равномерные точки
+                    return uniformPoint(centerX, centerZ, radius, y, random);
+                }
+            }
+        }
+
+        private boolean nextChunk() {
+            for (int retry = 0; retry < CHUNK_RETRIES; retry++) {
+                SpawnPoint point = uniformPoint(centerX, centerZ, radius, y, random);
+                int x = point.blockX() >> 4;
+                int z = point.blockZ() >> 4;
+                if (usedChunks.add(((long) x << 32) | (z & 0xFFFFFFFFL))) {
+                    chunkX = x;
+                    chunkZ = z;
+                    shuffleQuadrants();
+                    nextQuadrant = 0;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return Случайная колонна четверти чанка внутри радиуса или null, если не попали
+         */
+        private SpawnPoint pointInQuadrant(int quadrant) {
+            int minX = (chunkX << 4) + (quadrant & 1) * 8;
+            int minZ = (chunkZ << 4) + (quadrant >> 1) * 8;
+            for (int retry = 0; retry < QUADRANT_RETRIES; retry++) {
+                double x = minX + random.nextInt(8) + 0.5;
+                double z = minZ + random.nextInt(8) + 0.5;
+                double dx = x - centerX;
+                double dz = z - centerZ;
+                if (dx * dx + dz * dz <= (double) radius * radius) {
+                    return new SpawnPoint(x, y, z);
+                }
+            }
+            return null;
+        }
+
+        private void shuffleQuadrants() {
+            for (int i = quadrants.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = quadrants[i];
+                quadrants[i] = quadrants[j];
+                quadrants[j] = swap;
+            }
+        }
+    }
+}
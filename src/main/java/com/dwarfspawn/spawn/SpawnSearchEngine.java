@@ -0,0 +1,195 @@
+package com.dwarfspawn.spawn;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Алгоритм поиска места спавна. Не зависит от сервера: блоки читаются через
+ * {@link BlockAccess}, поэтому один и тот же код работает по снимкам чанков
+ * настоящего мира и по сетке блоков в памяти (бенчмарки).
+ * Сам движок не хранит состояния поиска и может использоваться из разных потоков.
+ */
+public class SpawnSearchEngine {
+    // Радиус поиска вокруг случайной точки, если в самой точке место не подошло
+    public static final int NEARBY_SEARCH_RADIUS = 5;
+    private static final BooleanSupplier NOT_CANCELLED = () -> false;
+
+    private final ColumnCache columnCache;
+
+    /**
+     * @param columnCache Кэш проверенных колонн или null, если кэшировать не нужно
+     */
+    public SpawnSearchEngine(ColumnCache columnCache) {
+        this.columnCache = columnCache;
+    }
+
+    /**
+     * Проверяет случайных кандидатов в радиусе от центра
+     * @param sampler Источник кандидатов этого поиска
+     * @param attempts Количество кандидатов
+     * @param trace Счетчики текущего поиска
+     * @return Первое найденное место или null
+     */
+    public SpawnPoint findRandom(BlockAccess blocks, CandidateSampler sampler, int attempts,
+            SearchSettings settings, SearchTrace trace) {
+        for (int attempt = 0; attempt < attempts; attempt++) {
+            SpawnPoint validPoint = findNear(sampler.next(), blocks, settings, trace);
+            if (validPoint != null) {
+                return validPoint;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Место рядом с первым кандидатом, для которого оно нашлось, или null
+     */
+    public SpawnPoint findFirstValid(List<SpawnPoint> candidates, BlockAccess blocks, SearchSettings settings,
+            SearchTrace trace) {
+        for (SpawnPoint candidate : candidates) {
+            SpawnPoint validPoint = findNear(candidate, blocks, settings, trace);
+            if (validPoint != null) {
+                return validPoint;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Ищет место точно в колонне кандидата, а если не нашли - в небольшом радиусе
+     * вокруг (5 блоков). Это помогает найти место, если рядом есть подходящие блоки.
+     */
+    public SpawnPoint findNear(SpawnPoint candidate, BlockAccess blocks, SearchSettings settings, SearchTrace trace) {
+        return findNear(candidate, blocks, settings, trace, NOT_CANCELLED);
+    }
+
+    /**
+     * То же, что {@link #findNear(SpawnPoint, BlockAccess, SearchSettings, SearchTrace)},
+     * но с возможностью прервать проверку
+     * @param cancelled Проверяется перед каждой колонной: true - место уже найдено
+     *                  в другом потоке и продолжать не нужно
+     * @return Найденное место или null (в том числе если проверку прервали)
+     */
+    public SpawnPoint findNear(SpawnPoint candidate, BlockAccess blocks, SearchSettings settings, SearchTrace trace,
+            BooleanSupplier cancelled) {
+        trace.attempt();
+        int blockX = candidate.blockX();
+        int blockZ = candidate.blockZ();
+        int startY = (int) candidate.y();
+
+        // Колонны проверяются по int-координатам, объект создается только для найденного места
+        int spawnY = findSpawnY(blockX, blockZ, startY, blocks, settings, trace);
+        if (spawnY != ColumnScanner.NO_SPAWN) {
+            return new SpawnPoint(candidate.x(), spawnY, candidate.z());
+        }
+
+        // Проверяем точки в круге вокруг кандидата
+        for (int dx = -NEARBY_SEARCH_RADIUS; dx <= NEARBY_SEARCH_RADIUS; dx++) {
+            for (int dz = -NEARBY_SEARCH_RADIUS; dz <= NEARBY_SEARCH_RADIUS; dz++) {
+                // Пропускаем саму колонну кандидата и точки вне круга
+                if ((dx == 0 && dz == 0) || dx * dx + dz * dz > NEARBY_SEARCH_RADIUS * NEARBY_SEARCH_RADIUS) {
+                    continue;
+                }
+                if (cancelled.getAsBoolean()) {
+                    return null;
+                }
+
+                spawnY = findSpawnY(blockX + dx, blockZ + dz, startY, blocks, settings, trace);
+                if (spawnY != ColumnScanner.NO_SPAWN) {
+                    return new SpawnPoint(candidate.x() + dx, spawnY, candidate.z() + dz);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Ищет безопасное место в колонне точки, спускаясь от ее высоты вниз.
+     * Подходящие высоты колонны берутся из кэша колонн (выбранная высота перед этим
+     * быстро перепроверяется по блокам), а при промахе колонна проверяется целиком
+     * и результат кладется в кэш.
+     * @param point Точка, задающая колонну и стартовую высоту
+     * @param trace Счетчики текущего поиска
+     * @return Найденное место или null
+     */
+    public SpawnPoint findInColumn(SpawnPoint point, BlockAccess blocks, SearchSettings settings, SearchTrace trace) {
+        int spawnY = findSpawnY(point.blockX(), point.blockZ(), (int) point.y(), blocks, settings, trace);
+        return spawnY == ColumnScanner.NO_SPAWN ? null : new SpawnPoint(point.x(), spawnY, point.z());
+    }
+
+    /**
+     * То же, что findInColumn, но без создания объектов
+     * @return Высота найденного места или ColumnScanner.NO_SPAWN
+     */
+    private int findSpawnY(int blockX, int blockZ, int startY, BlockAccess blocks, SearchSettings settings,
+            SearchTrace trace) {
+        startY = Math.min(startY, settings.maxSpawnHeight());
+        if (!blocks.hasColumn(blockX, blockZ)) {
+            return ColumnScanner.NO_SPAWN; // Чанк недоступен
+        }
+        UUID worldId = columnCache != null ? blocks.getWorldId() : null;
+
+        int[] spawnYs = worldId != null ? columnCache.get(worldId, blockX, blockZ) : null;
+        if (spawnYs != null) {
+            int spawnY = highestNotAbove(spawnYs, startY);
+            // Кэш мог устареть (ведро лавы, поршень и т.п.), поэтому найденную высоту
+            // перепроверяем по текущим блокам: это несколько чтений вместо всей колонны
+            if (spawnY == ColumnScanner.NO_SPAWN || ColumnScanner.isStillSpawnable(blocks, blockX, spawnY, blockZ,
+                    settings.safetyRules(), settings.checkBlockAbove())) {
+                trace.cacheHit();
+                return spawnY;
+            }
+            // Место из кэша больше не подходит - проверяем колонну заново
+        }
+        trace.columnScanned();
+
+        if (worldId == null) {
+            // Без кэша достаточно первого места ниже стартовой высоты
+            return ColumnScanner.findSpawnY(blocks, blockX, blockZ, startY, getMinY(blocks, settings),
+                    settings.safetyRules(), settings.checkBlockAbove());
+        }
+
+        // Проверяем колонну во всем диапазоне высот спавна, чтобы результат
+        // подошел и для других стартовых высот
+        spawnYs = ColumnScanner.findSpawnYs(blocks, blockX, blockZ, settings.maxSpawnHeight(),
+                getMinY(blocks, settings), settings.safetyRules(), settings.checkBlockAbove());
+        columnCache.put(worldId, blockX, blockZ, spawnYs, blocks.getColumnCacheStamp());
+        return highestNotAbove(spawnYs, startY);
+    }
+
+    /**
+     * Высоты идут по убыванию - берем самую высокую, не выше стартовой
+     */
+    private static int highestNotAbove(int[] spawnYs, int startY) {
+        for (int spawnY : spawnYs) {
+            if (spawnY <= startY) {
+                return spawnY;
+            }
+        }
+        return ColumnScanner.NO_SPAWN;
+    }
+
+    /**
+     * Перепроверяет ранее найденную точку по самим блокам, минуя кэш колонн
+     * @return Актуальное место в той же колонне или null, если оно больше не подходит
+     */
+    public SpawnPoint revalidate(SpawnPoint point, BlockAccess blocks, SearchSettings settings) {
+        int blockX = point.blockX();
+        int blockZ = point.blockZ();
+        if (!blocks.hasColumn(blockX, blockZ)) {
+            return null;
+        }
+
+        int spawnY = ColumnScanner.findSpawnY(blocks, blockX, blockZ,
+                Math.min(point.blockY(), settings.maxSpawnHeight()), getMinY(blocks, settings),
+                settings.safetyRules(), settings.checkBlockAbove());
+        return spawnY == ColumnScanner.NO_SPAWN ? null : new SpawnPoint(point.x(), spawnY, point.z());
+    }
+
+    private int getMinY(BlockAccess blocks, SearchSettings settings) {
+        // Не ищем ниже минимальной высоты
+        return Math.max(blocks.getMinY(), settings.minSpawnHeight());
+    }
+}
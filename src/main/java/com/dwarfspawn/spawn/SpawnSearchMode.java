@@ -0,0 +1,29 @@
+package com.dwarfspawn.spawn;
+
+import java.util.Locale;
+
+/**
+ * Как выполняется поиск места спавна при возрождении и первом входе
+ */
+public enum SpawnSearchMode {
+    /** Сразу в событии, незагруженные чанки загружаются в главном потоке */
+    SYNC,
+    /** Чанки загружаются асинхронно, колонны проверяются вне главного потока (только Paper) */
+    ASYNC,
+    /** В главном потоке, но не дольше заданного времени за тик на всех игроков */
+    BUDGETED;
+
+    /**
+     * @return Режим по имени (без учета регистра) или null, если такого режима нет
+     */
+    public static SpawnSearchMode parse(String name) {
+        if (name == null) {
+            return null;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
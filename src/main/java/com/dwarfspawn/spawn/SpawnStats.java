@@ -0,0 +1,208 @@
+package com.dwarfspawn.spawn;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Статистика поиска мест спавна: счетчики и гистограммы задержки и числа попыток.
+ * Может обновляться из любого потока.
+ */
+public class SpawnStats {
+
+    /**
+     * Чем закончился поиск места спавна
+     */
+    public enum Outcome {
+        /** Место найдено в случайной точке радиуса */
+        RANDOM("случайная точка"),
+        /** Готовая точка взята из пула */
+        POOL("из пула"),
+        /** Использована конкретная точка спавна (radius-enabled: false) */
+        FIXED_POINT("точка из конфига"),
+        /** Случайные попытки кончились, использован центр спавна */
+        CENTER_FALLBACK("центр (попытки кончились)"),
+        /** Место не найдено, используется дефолтный спавн Minecraft */
+        VANILLA_FALLBACK("дефолтный спавн");
+
+        private final String displayName;
+
+        Outcome(String displayName) {
+            this.displayName = displayName;
+        }
+    }
+
+    private final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder columnsScanned = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder chunkLoads = new LongAdder();
+    private final LongAdder poolFills = new LongAdder();
+    private final Log2Histogram latencyMicros = new Log2Histogram();
+    private final Log2Histogram attemptsPerSearch = new Log2Histogram();
+    private volatile long resetAt = System.currentTimeMillis();
+
+    public SpawnStats() {
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Учитывает завершенный поиск места для возрождения или первого входа
+     */
+    public void record(SearchTrace trace) {
+        outcomes[trace.getOutcome().ordinal()].increment();
+        latencyMicros.add(trace.getElapsedNanos() / 1000);
+        attemptsPerSearch.add(trace.getAttempts());
+        addWork(trace);
+    }
+
+    /**
+     * Учитывает фоновый поиск для пула точек. В гистограммы не попадает, так как
+     * игрок его не ждет, но загруженные чанки и проверенные колонны считаются.
+     */
+    public void recordPoolFill(SearchTrace trace) {
+        poolFills.increment();
+        addWork(trace);
+    }
+
+    public long getSearches() {
+        long total = 0;
+        for (LongAdder outcome : outcomes) {
+            total += outcome.sum();
+        }
+        return total;
+    }
+
+    public long getOutcomeCount(Outcome outcome) {
+        return outcomes[outcome.ordinal()].sum();
+    }
+
+    /**
+     * Обнуляет всю статистику
+     */
+    public void reset() {
+        for (LongAdder outcome : outcomes) {
+            outcome.reset();
+        }
+        attempts.reset();
+        columnsScanned.reset();
+        cacheHits.reset();
+        chunkLoads.reset();
+        poolFills.reset();
+        latencyMicros.reset();
+        attemptsPerSearch.reset();
+        resetAt = System.currentTimeMillis();
+    }
+
+    /**
+     * @return Строки отчета для команды /dwarfspawn stats (с цветами)
+     */
+    public List<String> formatReport() {
+        long searches = getSearches();
+        long lookups = columnsScanned.sum() + cacheHits.sum();
+        List<String> lines = new ArrayList<>();
+        lines.add("§6[DwarfSpawn] §7Статистика спавна за " + formatDuration(System.currentTimeMillis() - resetAt) + ":");
+        lines.add("§7Поисков: §f" + searches + " §7(фоновых для пула: §f" + poolFills.sum() + "§7)");
+        for (Outcome outcome : Outcome.values()) {
+            long count = getOutcomeCount(outcome);
+            lines.add("§7  " + outcome.displayName + ": §f" + count + " §7(" + percent(count, searches) + ")");
+        }
+        lines.add("§7Попыток на поиск: §fсредн. " + average(attempts.sum(), searches) + attemptsPerSearch.format());
+        lines.add("§7Задержка, мкс:" + latencyMicros.format());
+        lines.add("§7Колонн проверено: §f" + columnsScanned.sum() + " §7из кэша: §f" + cacheHits.sum()
+                + " §7(" + percent(cacheHits.sum(), lookups) + ")");
+        lines.add("§7Загрузок чанков: §f" + chunkLoads.sum());
+        return lines;
+    }
+
+    /**
+     * @return Однострочная сводка для периодического лога
+     */
+    public String formatLogLine() {
+        long searches = getSearches();
+        return "Спавн: поисков " + searches
+                + ", дефолтный спавн " + getOutcomeCount(Outcome.VANILLA_FALLBACK)
+                + ", центр " + getOutcomeCount(Outcome.CENTER_FALLBACK)
+                + ", попыток в среднем " + average(attempts.sum(), searches)
+                + ", задержка p50/p99 " + latencyMicros.percentile(0.5) + "/" + latencyMicros.percentile(0.99) + " мкс"
+                + ", колонн " + columnsScanned.sum() + " (кэш " + cacheHits.sum() + ")"
+                + ", загрузок чанков " + chunkLoads.sum();
+    }
+
+    private void addWork(SearchTrace trace) {
+        attempts.add(trace.getAttempts());
+        columnsScanned.add(trace.getColumnsScanned());
+        cacheHits.add(trace.getCacheHits());
+        chunkLoads.add(trace.getChunkLoads());
+    }
+
+    private static String percent(long part, long total) {
+        return total == 0 ? "0%" : String.format("%.1f%%", part * 100.0 / total);
+    }
+
+    private static String average(long sum, long count) {
+        return count == 0 ? "0" : String.format("%.1f", (double) sum / count);
+    }
+
+    private static String formatDuration(long millis) {
+        long minutes = millis / 60_000;
+        return minutes < 60 ? minutes + " мин" : minutes / 60 + " ч " + minutes % 60 + " мин";
+    }
+
+    /**
+     * Гистограмма с корзинами по степеням двойки: в корзину i попадают значения
+     * от 2^(i-1) до 2^i - 1 (в корзину 0 - ноль). Процентили считаются с точностью
+     * до корзины и возвращают ее верхнюю границу.
+     */
+    private static class Log2Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final LongAdder count = new LongAdder();
+        private volatile long max;
+
+        void add(long value) {
+            value = Math.max(0, value);
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+            count.increment();
+            // Гонка при обновлении максимума допустима: это только статистика
+            if (value > max) {
+                max = value;
+            }
+        }
+
+        long percentile(double fraction) {
+            long total = count.sum();
+            if (total == 0) {
+                return 0;
+            }
+            long threshold = (long) Math.ceil(total * fraction);
+            long seen = 0;
+            for (int i = 0; i < 64; i++) {
+                seen += buckets.get(i);
+                if (seen >= threshold) {
+                    return Math.min(upperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        String format() {
+            return " §7p50 §f" + percentile(0.5) + " §7p90 §f" + percentile(0.9)
+                    + " §7p99 §f" + percentile(0.99) + " §7макс. §f" + max;
+        }
+
+        void reset() {
+            for (int i = 0; i < 64; i++) {
+                buckets.set(i, 0);
+            }
+            count.reset();
+            max = 0;
+        }
+
+        private static long upperBound(int bucket) {
+            return bucket == 0 ? 0 : bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.dwarfspawn.spawn;
+
+import com.dwarfspawn.ConfigManager;
+import com.dwarfspawn.PluginSettings;
+import com.dwarfspawn.compat.PaperCompat;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Фоновый прогрев области спавна после запуска сервера: чанки в радиусе спавна
+ * по очереди (от центра к краю) загружаются, при необходимости генерируются и
+ * проверяются, а найденные места попадают в {@link SpawnIndex}. Скорость
+ * ограничена настройкой spawn-warmup-chunks-per-second.
+ * Загрузка и снимки чанков - в главном потоке, проверка колонн - асинхронно.
+ * Методы start/stop вызываются только из главного потока.
+ */
+public class SpawnWarmup {
+    // Шаг сетки проверяемых колонн внутри чанка: 4 x 4 колонны на чанк
+    private static final int COLUMN_STEP = 4;
+    // Сколько асинхронных загрузок чанков может ждать одновременно (Paper)
+    private static final int MAX_PENDING_LOADS = 8;
+
+    private final JavaPlugin plugin;
+    private final ConfigManager configManager;
+    private final ColumnCache columnCache;
+    private final SpawnIndex index;
+    // Без кэша колонн: прогрев проходит по тысячам чанков и вытеснил бы из кэша полезные колонны
+    private final SpawnSearchEngine engine = new SpawnSearchEngine(null);
+    private BukkitTask task;
+    // Номер запуска: результаты остановленного прогрева отбрасываются
+    private int generation;
+
+    public SpawnWarmup(JavaPlugin plugin, ConfigManager configManager, ColumnCache columnCache, SpawnIndex index) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+        this.columnCache = columnCache;
+        this.index = index;
+    }
+
+    /**
+     * Запускает прогрев вокруг точки спавна из конфигурации, если он включен
+     */
+    public void start() {
+        stop();
+
+        PluginSettings settings = configManager.getSettings();
+        if (!settings.warmupEnabled() || !settings.radiusEnabled() || settings.warmupChunksPerSecond() <= 0) {
+            return;
+        }
+        Location center = configManager.getSpawnLocation();
+        if (center == null || center.getWorld() == null) {
+            return;
+        }
+
+        long[] chunks = chunksInRadius(center.getBlockX(), center.getBlockZ(), settings.spawnRadius());
+        plugin.getLogger().info("Прогрев области спавна: " + chunks.length + " чанков в мире "
+                + center.getWorld().getName());
+        task = new WarmupTask(++generation, center, settings, chunks).runTaskTimer(plugin, 1L, 1L);
+    }
+
+    /**
+     * Останавливает прогрев, уже найденные места остаются в индексе
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        generation++;
+    }
+
+    /**
+     * @return Ключи чанков, пересекающих круг радиуса, от ближних к центру к дальним
+     */
+    private static long[] chunksInRadius(int centerX, int centerZ, int radius) {
+        int centerChunkX = centerX >> 4;
+        int centerChunkZ = centerZ >> 4;
+        int chunkRadius = (radius >> 4) + 1;
+        List<long[]> chunks = new ArrayList<>();
+        for (int chunkX = centerChunkX - chunkRadius; chunkX <= centerChunkX + chunkRadius; chunkX++) {
+            for (int chunkZ = centerChunkZ - chunkRadius; chunkZ <= centerChunkZ + chunkRadius; chunkZ++) {
+                // Ближайшая к центру точка чанка должна попадать в круг
+                long dx = Math.max(0, Math.max((chunkX << 4) - centerX, centerX - ((chunkX << 4) + 15)));
+                long dz = Math.max(0, Math.max((chunkZ << 4) - centerZ, centerZ - ((chunkZ << 4) + 15)));
+                long distance = dx * dx + dz * dz;
+                if (distance <= (long) radius * radius) {
+                    chunks.add(new long[] {distance, ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL)});
+                }
+            }
+        }
+        chunks.sort((a, b) -> Long.compare(a[0], b[0]));
+        return chunks.stream().mapToLong(chunk -> chunk[1]).toArray();
+    }
+
+    private class WarmupTask extends BukkitRunnable {
+        private final int runGeneration;
+        private final Location center;
+        private final World world;
+        private final SearchSettings settings;
+        private final ChunkPolicy chunkPolicy;
+        private final double chunksPerTick;
+        private final long[] chunks;
+        private final long startedAt = System.nanoTime();
+        private int next;
+        private int pendingLoads;
+        private int pendingScans;
+        private int scanned;
+        private double allowance;
+
+        private WarmupTask(int runGeneration, Location center, PluginSettings settings, long[] chunks) {
+            this.runGeneration = runGeneration;
+            this.center = center;
+            this.world = center.getWorld();
+            this.settings = SearchSettings.of(settings);
+            this.chunkPolicy = settings.chunkPolicy();
+            this.chunksPerTick = settings.warmupChunksPerSecond() / 20.0;
+            this.chunks = chunks;
+        }
+
+        @Override
+        public void run() {
+            if (next >= chunks.length) {
+                if (pendingLoads == 0 && pendingScans == 0) {
+                    finish();
+                }
+                return;
+            }
+
+            // Не копим запас на время, пока ждали загрузок
+            allowance = Math.min(allowance + chunksPerTick, Math.max(1.0, chunksPerTick));
+            while (allowance >= 1.0 && next < chunks.length && pendingLoads < MAX_PENDING_LOADS) {
+                long key = chunks[next++];
+                int chunkX = (int) (key >> 32);
+                int chunkZ = (int) key;
+                if (index.containsChunk(world.getUID(), chunkX, chunkZ)) {
+                    continue;
+                }
+                if (!world.isChunkLoaded(chunkX, chunkZ) && !chunkPolicy.mayLoad(world, chunkX, chunkZ)) {
+                    continue; // Прогрев тоже не генерирует то, что запрещено spawn-chunk-policy
+                }
+                allowance -= 1.0;
+                load(chunkX, chunkZ);
+            }
+        }
+
+        private void load(int chunkX, int chunkZ) {
+            if (world.isChunkLoaded(chunkX, chunkZ) || !PaperCompat.hasAsyncChunks()) {
+                // Без Paper загружаем синхронно, скорость и так ограничена
+                world.loadChunk(chunkX, chunkZ, true);
+                scan(chunkX, chunkZ);
+                return;
+            }
+
+            pendingLoads++;
+            // Future Paper завершается в главном потоке
+            world.getChunkAtAsync(chunkX, chunkZ).whenComplete((chunk, error) -> {
+                pendingLoads--;
+                if (error == null && runGeneration == generation) {
+                    scan(chunkX, chunkZ);
+                }
+            });
+        }
+
+        /**
+         * Снимает снимок загруженного чанка и асинхронно проверяет сетку его колонн
+         */
+        private void scan(int chunkX, int chunkZ) {
+            ChunkSnapshotCache snapshots = new ChunkSnapshotCache(world, null, columnCache.currentStamp());
+            if (snapshots.get(chunkX, chunkZ) == null) {
+                return;
+            }
+            snapshots.freeze();
+
+            pendingScans++;
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+                List<SpawnPoint> found = findInChunk(snapshots, chunkX, chunkZ);
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    pendingScans--;
+                    if (runGeneration == generation) {
+                        index.putChunk(world.getUID(), chunkX, chunkZ, found);
+                        scanned++;
+                    }
+                });
+            });
+        }
+
+        private List<SpawnPoint> findInChunk(ChunkSnapshotCache snapshots, int chunkX, int chunkZ) {
+            long radiusSquared = (long) settings.spawnRadius() * settings.spawnRadius();
+            SearchTrace trace = new SearchTrace();
+            List<SpawnPoint> found = new ArrayList<>();
+            for (int localX = COLUMN_STEP / 2; localX < 16; localX += COLUMN_STEP) {
+                for (int localZ = COLUMN_STEP / 2; localZ < 16; localZ += COLUMN_STEP) {
+                    int x = (chunkX << 4) + localX;
+                    int z = (chunkZ << 4) + localZ;
+                    long dx = x - center.getBlockX();
+                    long dz = z - center.getBlockZ();
+                    if (dx * dx + dz * dz > radiusSquared) {
+                        continue;
+                    }
+
+                    SpawnPoint validPoint = engine.findInColumn(
+                            new SpawnPoint(x + 0.5, settings.maxSpawnHeight(), z + 0.5), snapshots, settings, trace);
+                    if (validPoint != null) {
+                        found.add(validPoint);
+                    }
+                }
+            }
+            return found;
+        }
+
+        private void finish() {
+            cancel();
+            if (task == this) {
+                task = null;
+            }
+            long seconds = (System.nanoTime() - startedAt) / 1_000_000_000L;
+            plugin.getLogger().info("Прогрев области спавна завершен: проверено " + scanned + " чанков, "
+                    + index.size(world.getUID()) + " мест в индексе, " + seconds + " с");
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.dwarfspawn.spawn;
+
+import org.bukkit.Location;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Поиски мест спавна, начатые заранее - в момент смерти игрока, пока он смотрит
+ * на экран смерти, или при входе нового игрока, пока он подключается. При
+ * возрождении (входе) найденное место просто забирается, поэтому в этом тике
+ * поиска уже нет. Пока место ждет игрока, его чанк удерживается загруженным
+ * через общий счетчик тикетов {@link ChunkTickets}.
+ * Все методы вызываются только из главного потока.
+ */
+public class SpeculativeSpawns {
+    private final ChunkTickets chunkTickets;
+    private final Map<UUID, Parked> pending = new HashMap<>();
+
+    public SpeculativeSpawns(ChunkTickets chunkTickets) {
+        this.chunkTickets = chunkTickets;
+    }
+
+    /**
+     * Запоминает начатый поиск для игрока (предыдущий, если был, отбрасывается)
+     * @param search Поиск, который завершается в главном потоке
+     */
+    public void park(UUID playerId, CompletableFuture<Location> search) {
+        discard(playerId);
+        Parked parked = new Parked(search);
+        pending.put(playerId, parked);
+        search.thenAccept(location -> {
+            // Держим чанк, только если место все еще ждет этого игрока
+            if (location != null && location.getWorld() != null && pending.get(playerId) == parked) {
+                chunkTickets.acquire(location);
+                parked.held = location;
+            }
+        });
+    }
+
+    /**
+     * Забирает поиск игрока
+     * @return Поиск (завершенный или еще идущий) или null, если поиск не начинали
+     */
+    public CompletableFuture<Location> take(UUID playerId) {
+        Parked parked = pending.remove(playerId);
+        if (parked == null) {
+            return null;
+        }
+        release(parked);
+        return parked.search;
+    }
+
+    /**
+     * Забирает место игрока, только если поиск уже завершился; идущий поиск остается
+     * @return Найденное место или null (поиск не начинали, он еще идет или места нет)
+     */
+    public Location takeIfReady(UUID playerId) {
+        Parked parked = pending.get(playerId);
+        if (parked == null || !parked.search.isDone()) {
+            return null;
+        }
+        take(playerId);
+        return getIfReady(parked.search);
+    }
+
+    /**
+     * Отбрасывает поиск игрока (например, игрок вышел с сервера)
+     */
+    public void discard(UUID playerId) {
+        take(playerId);
+    }
+
+    /**
+     * Отбрасывает поиск игрока, только если это все еще тот же поиск (его не забрали
+     * и не заменили новым)
+     */
+    public void discard(UUID playerId, CompletableFuture<Location> search) {
+        Parked parked = pending.get(playerId);
+        if (parked != null && parked.search == search) {
+            take(playerId);
+        }
+    }
+
+    /**
+     * Отбрасывает все поиски и освобождает чанки (при выключении плагина)
+     */
+    public void clear() {
+        for (Parked parked : pending.values()) {
+            release(parked);
+        }
+        pending.clear();
+    }
+
+    /**
+     * @return Найденное место, если поиск уже завершился успешно, иначе null
+     */
+    public static Location getIfReady(CompletableFuture<Location> search) {
+        if (!search.isDone() || search.isCompletedExceptionally()) {
+            return null;
+        }
+        return search.getNow(null);
+    }
+
+    private void release(Parked parked) {
+        if (parked.held != null) {
+            chunkTickets.release(parked.held);
+            parked.held = null;
+        }
+    }
+
+    /**
+     * Поиск одного игрока и место, чей чанк он держит (null - чанк не взят)
+     */
+    private static class Parked {
+        private final CompletableFuture<Location> search;
+        private Location held;
+
+        private Parked(CompletableFuture<Location> search) {
+            this.search = search;
+        }
+    }
+}
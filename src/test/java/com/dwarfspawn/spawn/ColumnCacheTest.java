@@ -0,0 +1,177 @@
+package com.dwarfspawn.spawn;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Кэш колонн: номера изменений, вытеснение и работа из нескольких потоков
+ */
+class ColumnCacheTest {
+    private static final UUID WORLD = new UUID(0L, 1L);
+    private static final UUID OTHER_WORLD = new UUID(0L, 2L);
+
+    @Test
+    void returnsStoredColumn() {
+        ColumnCache cache = new ColumnCache(64);
+        int[] spawnYs = {20, 11};
+        cache.put(WORLD, 5, -7, spawnYs, cache.currentStamp());
+
+        assertSame(spawnYs, cache.get(WORLD, 5, -7));
+        assertNull(cache.get(WORLD, 6, -7));
+        assertNull(cache.get(OTHER_WORLD, 5, -7));
+    }
+
+    @Test
+    void invalidateColumnRemovesOnlyThatColumn() {
+        ColumnCache cache = new ColumnCache(64);
+        long stamp = cache.currentStamp();
+        cache.put(WORLD, 1, 1, new int[] {11}, stamp);
+        cache.put(WORLD, 2, 1, new int[] {12}, stamp);
+
+        cache.invalidateColumn(WORLD, 1, 1);
+
+        assertNull(cache.get(WORLD, 1, 1));
+        assertNotNull(cache.get(WORLD, 2, 1));
+    }
+
+    @Test
+    void rejectsResultCapturedBeforeInvalidation() {
+        ColumnCache cache = new ColumnCache(64);
+        long capturedAt = cache.currentStamp();
+
+        // Блок изменился, пока колонна проверялась по старому снимку
+        cache.invalidateColumn(WORLD, 3, 3);
+        cache.put(WORLD, 3, 3, new int[] {11}, capturedAt);
+        assertNull(cache.get(WORLD, 3, 3));
+
+        // Весь чанк считается измененным, а снимок - устаревшим
+        cache.put(WORLD, 4, 3, new int[] {11}, capturedAt);
+        assertNull(cache.get(WORLD, 4, 3));
+
+        // Результат по новому снимку принимается
+        cache.put(WORLD, 3, 3, new int[] {11}, cache.currentStamp());
+        assertNotNull(cache.get(WORLD, 3, 3));
+    }
+
+    @Test
+    void invalidationDoesNotAffectOtherChunksAndWorlds() {
+        ColumnCache cache = new ColumnCache(64);
+        long capturedAt = cache.currentStamp();
+
+        cache.invalidateColumn(WORLD, 3, 3);
+        cache.put(WORLD, 3 + 16, 3, new int[] {11}, capturedAt);
+        cache.put(OTHER_WORLD, 3, 3, new int[] {11}, capturedAt);
+
+        assertNotNull(cache.get(WORLD, 3 + 16, 3));
+        assertNotNull(cache.get(OTHER_WORLD, 3, 3));
+    }
+
+    @Test
+    void rejectsOldResultsAfterInvalidationsAreForgotten() {
+        ColumnCache cache = new ColumnCache(64);
+        long capturedAt = cache.currentStamp();
+
+        // Изменений больше, чем кэш помнит: о старом снимке уже нельзя сказать, что он верен
+        for (int i = 0; i < 10_000; i++) {
+            cache.invalidateColumn(WORLD, i * 16, 0);
+        }
+        cache.put(WORLD, 0, 1_000_000, new int[] {11}, capturedAt);
+
+        assertNull(cache.get(WORLD, 0, 1_000_000));
+    }
+
+    @Test
+    void invalidateChunkRemovesAllColumns() {
+        ColumnCache cache = new ColumnCache(64);
+        long stamp = cache.currentStamp();
+        cache.put(WORLD, 0, 0, new int[] {11}, stamp);
+        cache.put(WORLD, 15, 15, new int[] {11}, stamp);
+        cache.put(WORLD, 16, 0, new int[] {11}, stamp);
+
+        cache.invalidateChunk(WORLD, 0, 0);
+
+        assertNull(cache.get(WORLD, 0, 0));
+        assertNull(cache.get(WORLD, 15, 15));
+        assertNotNull(cache.get(WORLD, 16, 0));
+    }
+
+    @Test
+    void resetClearsAndRejectsEarlierResults() {
+        ColumnCache cache = new ColumnCache(64);
+        long capturedAt = cache.currentStamp();
+        cache.put(WORLD, 0, 0, new int[] {11}, capturedAt);
+
+        cache.reset(64);
+        assertNull(cache.get(WORLD, 0, 0));
+
+        cache.put(WORLD, 0, 0, new int[] {11}, capturedAt);
+        assertNull(cache.get(WORLD, 0, 0));
+
+        cache.reset(0);
+        cache.put(WORLD, 0, 0, new int[] {11}, cache.currentStamp());
+        assertNull(cache.get(WORLD, 0, 0));
+    }
+
+    @Test
+    void evictsChunksOverLimit() {
+        ColumnCache cache = new ColumnCache(64);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(WORLD, i * 16, 0, new int[] {i}, cache.currentStamp());
+        }
+
+        assertTrue(cache.size() <= 64, "size = " + cache.size());
+    }
+
+    @Test
+    void keepsRecentlyUsedChunk() {
+        ColumnCache cache = new ColumnCache(64);
+        int[] spawnYs = {11};
+        cache.put(WORLD, 0, 0, spawnYs, cache.currentStamp());
+        for (int i = 1; i < 10_000; i++) {
+            assertSame(spawnYs, cache.get(WORLD, 0, 0), "i = " + i);
+            cache.put(WORLD, i * 16, 0, new int[] {i}, cache.currentStamp());
+        }
+    }
+
+    @Test
+    void staysConsistentUnderConcurrentAccess() throws Exception {
+        ColumnCache cache = new ColumnCache(64);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                tasks.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 50_000; i++) {
+                        int x = random.nextInt(-512, 512);
+                        int z = random.nextInt(-512, 512);
+                        switch (random.nextInt(4)) {
+                            case 0 -> cache.invalidateColumn(WORLD, x, z);
+                            case 1 -> cache.get(WORLD, x, z);
+                            default -> cache.put(WORLD, x, z, new int[] {x}, cache.currentStamp());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(cache.size() <= 64, "size = " + cache.size());
+    }
+}
@@ -0,0 +1,165 @@
+package com.dwarfspawn.spawn;
+
+import org.bukkit.Material;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка колонн на сетке блоков в памяти: крыша, жидкости и границы мира
+ */
+class ColumnScannerTest {
+    private static final int MIN_Y = 0;
+    private static final int MAX_Y = 32;
+
+    private ArrayBlockAccess blocks;
+
+    @BeforeEach
+    void setUp() {
+        blocks = new ArrayBlockAccess(-8, -8, 16, 16, MIN_Y, MAX_Y);
+    }
+
+    @Test
+    void findsSpawnUnderRoof() {
+        cave(10, 14);
+
+        assertEquals(11, findSpawnY(true));
+    }
+
+    @Test
+    void skipsTopOfRoofUnderOpenSky() {
+        // Над крышей пещеры можно стоять, но там нет защиты от солнца
+        cave(10, 14);
+
+        assertEquals(15, findSpawnY(false));
+        assertEquals(11, findSpawnY(true));
+    }
+
+    @Test
+    void rejectsOpenSkyWhenRoofRequired() {
+        blocks.setType(0, 10, 0, Material.STONE);
+
+        assertEquals(ColumnScanner.NO_SPAWN, findSpawnY(true));
+        assertEquals(11, findSpawnY(false));
+    }
+
+    @Test
+    void rejectsLiquidAtBody() {
+        cave(10, 14);
+        blocks.setType(0, 11, 0, Material.WATER);
+
+        assertEquals(ColumnScanner.NO_SPAWN, findSpawnY(true));
+    }
+
+    @Test
+    void rejectsLiquidAtHead() {
+        cave(10, 14);
+        blocks.setType(0, 12, 0, Material.LAVA);
+
+        assertEquals(ColumnScanner.NO_SPAWN, findSpawnY(true));
+    }
+
+    @Test
+    void rejectsLiquidFloor() {
+        blocks.setType(0, 10, 0, Material.WATER);
+        blocks.setType(0, 14, 0, Material.STONE);
+
+        // Стоять можно только на самой крыше, а над ней открытое небо
+        assertEquals(ColumnScanner.NO_SPAWN, findSpawnY(true));
+    }
+
+    @Test
+    void liquidIsNotRoof() {
+        blocks.setType(0, 10, 0, Material.STONE);
+        blocks.setType(0, 14, 0, Material.WATER);
+
+        assertEquals(ColumnScanner.NO_SPAWN, findSpawnY(true));
+    }
+
+    @Test
+    void treatsBlocksBelowWorldAsVoid() {
+        blocks.setType(0, MIN_Y, 0, Material.STONE);
+
+        assertEquals(MIN_Y + 1, ColumnScanner.findSpawnY(blocks, 0, 0, MAX_Y - 1, MIN_Y, SafetyRules.DEFAULT, false));
+        // Под самой нижней высотой мира пола нет
+        blocks.setType(0, MIN_Y, 0, Material.AIR);
+        assertEquals(ColumnScanner.NO_SPAWN,
+                ColumnScanner.findSpawnY(blocks, 0, 0, MAX_Y - 1, MIN_Y, SafetyRules.DEFAULT, false));
+    }
+
+    @Test
+    void treatsBlocksAboveWorldAsAir() {
+        // Голова игрока оказывается выше мира - там пустота, как у World#getBlockAt
+        blocks.setType(0, MAX_Y - 2, 0, Material.STONE);
+
+        assertEquals(MAX_Y - 1,
+                ColumnScanner.findSpawnY(blocks, 0, 0, MAX_Y + 10, MIN_Y, SafetyRules.DEFAULT, false));
+    }
+
+    @Test
+    void respectsMinSpawnHeight() {
+        cave(10, 14);
+
+        assertEquals(ColumnScanner.NO_SPAWN,
+                ColumnScanner.findSpawnY(blocks, 0, 0, MAX_Y - 1, 12, SafetyRules.DEFAULT, true));
+    }
+
+    @Test
+    void findsAllHeightsInDescendingOrder() {
+        // Камень на 4, 8, 14 и 18 - три пещеры одна над другой
+        cave(4, 8);
+        cave(14, 18);
+
+        assertArrayEquals(new int[] {15, 9, 5}, findSpawnYs(true));
+    }
+
+    @Test
+    void findsSingleAndNoHeights() {
+        assertArrayEquals(new int[0], findSpawnYs(true));
+
+        cave(10, 14);
+        assertArrayEquals(new int[] {11}, findSpawnYs(true));
+    }
+
+    @Test
+    void findSpawnYsAgreesWithFindSpawnY() {
+        cave(4, 8);
+        cave(14, 18);
+
+        for (int startY = MAX_Y - 1; startY >= MIN_Y; startY--) {
+            int[] spawnYs = ColumnScanner.findSpawnYs(blocks, 0, 0, startY, MIN_Y, SafetyRules.DEFAULT, true);
+            int expected = spawnYs.length > 0 ? spawnYs[0] : ColumnScanner.NO_SPAWN;
+            assertEquals(expected, ColumnScanner.findSpawnY(blocks, 0, 0, startY, MIN_Y, SafetyRules.DEFAULT, true),
+                    "startY = " + startY);
+        }
+    }
+
+    @Test
+    void rechecksCachedHeight() {
+        cave(10, 14);
+        assertTrue(ColumnScanner.isStillSpawnable(blocks, 0, 11, 0, SafetyRules.DEFAULT, true));
+
+        blocks.setType(0, 11, 0, Material.WATER);
+        assertFalse(ColumnScanner.isStillSpawnable(blocks, 0, 11, 0, SafetyRules.DEFAULT, true));
+    }
+
+    /**
+     * Пещера в колонне (0, 0): пол на floorY, крыша на roofY, между ними воздух
+     */
+    private void cave(int floorY, int roofY) {
+        blocks.setType(0, floorY, 0, Material.STONE);
+        blocks.setType(0, roofY, 0, Material.STONE);
+    }
+
+    private int findSpawnY(boolean checkBlockAbove) {
+        return ColumnScanner.findSpawnY(blocks, 0, 0, MAX_Y - 1, MIN_Y + 1, SafetyRules.DEFAULT, checkBlockAbove);
+    }
+
+    private int[] findSpawnYs(boolean checkBlockAbove) {
+        return ColumnScanner.findSpawnYs(blocks, 0, 0, MAX_Y - 1, MIN_Y + 1, SafetyRules.DEFAULT, checkBlockAbove);
+    }
+}